@@ -105,6 +105,9 @@ public class SampleActivity extends AppCompatActivity {
                 VIEW_TYPE_2
         );
 
+        // inflate the expanded layouts in background ahead of the next expand
+        mRecyclerView.setAsyncInflationEnabled(true);
+
         // restore the expanded item from state
         if (savedInstanceState != null) {
             mRecyclerView.setExpandedItemId(savedInstanceState.getLong(KEY_EXPANDED_ID, Item.INVALID_ID));
@@ -59,7 +59,7 @@ public final class SampleExpandedViewHolder extends ExpandedViewHolder {
         return null;
     }
 
-    public static class Factory implements ItemAdapter.ItemViewHolder.Factory {
+    public static class Factory implements ItemAdapter.ItemViewHolder.InflatedViewFactory {
 
         public static SampleExpandedViewHolder.Factory create(@LayoutRes int itemViewLayoutId) {
             return new Factory(itemViewLayoutId);
@@ -78,6 +78,11 @@ public final class SampleExpandedViewHolder extends ExpandedViewHolder {
             return new SampleExpandedViewHolder(itemView);
         }
 
+        @Override
+        public ItemAdapter.ItemViewHolder<?> createViewHolder(View itemView, int viewType) {
+            return new SampleExpandedViewHolder(itemView);
+        }
+
         @Override
         public int getItemViewLayoutId() {
             return mItemViewLayoutId;
@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2017 Sysdata Spa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sysdata.widget.accordion;
+
+import android.support.v7.widget.RecyclerView;
+import android.util.SparseArray;
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.sysdata.widget.accordion.collections.LongLruSet;
+
+/**
+ * {@link ItemAdapter} owned by a {@link FancyAccordionView}. Keeps the factories registered for
+ * the collapsed and expanded state of each item view type and resolves the view type of its
+ * {@link ExpandableItemHolder}s through them.
+ */
+class AccordionItemAdapter extends ItemAdapter<ExpandableItemHolder> {
+
+    private final SparseArray<ItemViewHolder.Factory> mCollapsedViewHolderFactories = new SparseArray<>();
+    private final SparseArray<ItemViewHolder.Factory> mExpandedViewHolderFactories = new SparseArray<>();
+
+    /**
+     * Incremented whenever a factory is registered, invalidating the view types cached by the
+     * item holders.
+     */
+    private int mFactoriesGeneration;
+
+    /**
+     * Source of the item views inflated ahead of time, if enabled.
+     */
+    private ItemViewPreinflater mItemViewPreinflater;
+
+    /**
+     * Ids of the expanded items tracked by the owning {@link FancyAccordionView}, used to restore
+     * the expanded state of the item holders of the pages loaded again by a
+     * {@link PagedItemList}.
+     */
+    private LongLruSet mExpandedItemIds;
+
+    void setExpandedItemIds(LongLruSet expandedItemIds) {
+        mExpandedItemIds = expandedItemIds;
+    }
+
+    /**
+     * Registers the factory used to create the view holders of the given view type for collapsed
+     * state.
+     */
+    void setCollapsedViewHolderFactory(ItemViewHolder.Factory factory,
+                                       OnItemClickedListener listener, int viewType) {
+        mCollapsedViewHolderFactories.put(viewType, factory);
+        mFactoriesGeneration++;
+        withViewTypes(factory, listener, factory.getItemViewLayoutId());
+    }
+
+    /**
+     * Registers the factory used to create the view holders of the given view type for expanded
+     * state.
+     */
+    void setExpandedViewHolderFactory(ItemViewHolder.Factory factory,
+                                      OnItemClickedListener listener, int viewType) {
+        mExpandedViewHolderFactories.put(viewType, factory);
+        mFactoriesGeneration++;
+        withViewTypes(factory, listener, factory.getItemViewLayoutId());
+    }
+
+    /**
+     * @return the factory used to create the view holders of the given view type for collapsed
+     * state, or {@code null} if none is registered
+     */
+    ItemViewHolder.Factory getCollapsedViewHolderFactory(int viewType) {
+        return mCollapsedViewHolderFactories.get(viewType);
+    }
+
+    /**
+     * @return the factory used to create the view holders of the given view type for expanded
+     * state, or {@code null} if none is registered
+     */
+    ItemViewHolder.Factory getExpandedViewHolderFactory(int viewType) {
+        return mExpandedViewHolderFactories.get(viewType);
+    }
+
+    /**
+     * Requests the given number of view holders of every registered view type to the prewarmer.
+     *
+     * @param prewarmer      the prewarmer creating the view holders
+     * @param collapsedCount the number of view holders to create per collapsed factory
+     * @param expandedCount  the number of view holders to create per expanded factory
+     */
+    void requestViewHolders(ViewHolderPrewarmer prewarmer, int collapsedCount, int expandedCount) {
+        for (int i = 0; i < mCollapsedViewHolderFactories.size(); i++) {
+            prewarmer.request(mCollapsedViewHolderFactories.valueAt(i).getItemViewLayoutId(), collapsedCount);
+        }
+        for (int i = 0; i < mExpandedViewHolderFactories.size(); i++) {
+            prewarmer.request(mExpandedViewHolderFactories.valueAt(i).getItemViewLayoutId(), expandedCount);
+        }
+    }
+
+    void setItemViewPreinflater(ItemViewPreinflater preinflater) {
+        mItemViewPreinflater = preinflater;
+    }
+
+    @Override
+    protected View obtainPreinflatedItemView(ViewGroup parent, int viewType) {
+        return mItemViewPreinflater != null ? mItemViewPreinflater.obtain(viewType) : null;
+    }
+
+    /**
+     * @param position the adapter position of the item
+     * @param expanded the state of the item
+     * @return the view type of the item in the given state, or
+     * {@link ExpandableItemHolder#UNRESOLVED_VIEW_TYPE} if no factory is registered for it or
+     * the item is not loaded yet
+     */
+    int getItemViewType(int position, boolean expanded) {
+        if (isPlaceholder(position)) {
+            return ExpandableItemHolder.UNRESOLVED_VIEW_TYPE;
+        }
+        final ExpandableItemHolder itemHolder = getItems().get(position);
+        resolveViewTypes(itemHolder);
+        return itemHolder.getResolvedViewType(expanded);
+    }
+
+    /**
+     * Called by an item holder of this adapter when it is expanded or collapsed, before the
+     * change is notified, to let the {@link AccordionLinearLayoutManager} size the extra layout
+     * space of the coming predictive layout. The view types of both states are resolved on return.
+     */
+    void onItemExpansionChanged(ExpandableItemHolder itemHolder) {
+        resolveViewTypes(itemHolder);
+        final RecyclerView recyclerView = getRecyclerView();
+        if (recyclerView != null
+                && recyclerView.getLayoutManager() instanceof AccordionLinearLayoutManager) {
+            final boolean expanded = itemHolder.isExpanded();
+            ((AccordionLinearLayoutManager) recyclerView.getLayoutManager()).onItemExpansionChanged(
+                    itemHolder.itemId, expanded, itemHolder.getResolvedViewType(!expanded),
+                    itemHolder.getResolvedViewType(expanded));
+        }
+    }
+
+    /**
+     * RecyclerView asks for view types many times per layout pass, so the layout ids of both
+     * states are looked up once per item holder and cached in it until a factory is registered.
+     */
+    @Override
+    protected int resolveItemViewType(ExpandableItemHolder itemHolder) {
+        resolveViewTypes(itemHolder);
+
+        final int viewType = itemHolder.getResolvedViewType();
+        if (viewType == ExpandableItemHolder.UNRESOLVED_VIEW_TYPE) {
+            throw new IllegalStateException("No factory registered for view type: "
+                    + itemHolder.viewType + (itemHolder.isExpanded() ? " (expanded)" : " (collapsed)"));
+        }
+        return viewType;
+    }
+
+    private void resolveViewTypes(ExpandableItemHolder itemHolder) {
+        if (!itemHolder.hasResolvedViewTypes(this, mFactoriesGeneration)) {
+            itemHolder.setResolvedViewTypes(this, mFactoriesGeneration,
+                    getItemViewLayoutId(mCollapsedViewHolderFactories.get(itemHolder.viewType)),
+                    getItemViewLayoutId(mExpandedViewHolderFactories.get(itemHolder.viewType)));
+        }
+    }
+
+    private static int getItemViewLayoutId(ItemViewHolder.Factory factory) {
+        return factory != null
+                ? factory.getItemViewLayoutId() : ExpandableItemHolder.UNRESOLVED_VIEW_TYPE;
+    }
+
+    @Override
+    protected void onItemHolderAttached(ExpandableItemHolder itemHolder) {
+        itemHolder.setAdapter(this);
+        if (mExpandedItemIds != null && mExpandedItemIds.contains(itemHolder.itemId)) {
+            // the holder is not bound yet, no need to notify
+            itemHolder.setExpanded(true);
+        }
+    }
+
+    @Override
+    protected void onItemHolderDetached(ExpandableItemHolder itemHolder) {
+        if (itemHolder.getAdapter() == this) {
+            itemHolder.setAdapter(null);
+        }
+    }
+}
@@ -20,9 +20,41 @@ import android.content.Context;
 import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
 import android.util.AttributeSet;
+import android.util.SparseIntArray;
+import android.view.View;
 
 public class AccordionLinearLayoutManager extends LinearLayoutManager {
 
+    /**
+     * Last measured height of the item views, keyed by view type.
+     */
+    private final SparseIntArray mMeasuredHeights = new SparseIntArray();
+
+    /**
+     * Sum of the height changes of the items that changed view type since the last layout.
+     */
+    private int mPendingHeightDelta;
+
+    /**
+     * Whether some items changed view type since the last layout, and whether the height of one
+     * of them could not be estimated.
+     */
+    private boolean mHasPendingHeightChange;
+    private boolean mPendingHeightUnknown;
+
+    /**
+     * The {@link RecyclerView} this layout manager is attached to, if any.
+     */
+    private RecyclerView mRecyclerView;
+
+    /**
+     * Whether the current layout pass is the pre-layout of predictive animations.
+     */
+    private boolean mInPreLayout;
+
+    private int mLastOffscreenChildCount;
+    private int mOffscreenChildCount;
+
     public AccordionLinearLayoutManager(Context context) {
         super(context);
     }
@@ -35,12 +67,144 @@ public class AccordionLinearLayoutManager extends LinearLayoutManager {
         super(context, attrs, defStyleAttr, defStyleRes);
     }
 
+    /**
+     * Called when an item is about to be re-bound with a different view type, e.g. when it is
+     * expanded or collapsed, so that the extra layout space of the coming predictive layout covers
+     * its height change only.
+     *
+     * @param fromViewType the current view type of the item
+     * @param toViewType   the view type the item is changing to
+     */
+    public void onItemViewTypeChanged(int fromViewType, int toViewType) {
+        onItemExpansionChanged(RecyclerView.NO_ID, false, fromViewType, toViewType);
+    }
+
+    /**
+     * Like {@link #onItemViewTypeChanged(int, int)}, but uses the heights measured for the item
+     * itself in both states, if cached by its {@link ItemAdapter}, falling back to the last
+     * heights measured for any item of those view types.
+     *
+     * @param itemId       the id of the item, or {@link RecyclerView#NO_ID}
+     * @param expanded     the state the item is changing to
+     * @param fromViewType the current view type of the item
+     * @param toViewType   the view type the item is changing to, may be the same
+     */
+    public void onItemExpansionChanged(long itemId, boolean expanded, int fromViewType,
+                                       int toViewType) {
+        mHasPendingHeightChange = true;
+        final int fromHeight = getItemHeight(itemId, fromViewType, !expanded);
+        final int toHeight = getItemHeight(itemId, toViewType, expanded);
+        if (fromHeight < 0 || toHeight < 0) {
+            mPendingHeightUnknown = true;
+        } else {
+            mPendingHeightDelta += Math.abs(toHeight - fromHeight);
+        }
+    }
+
+    private int getItemHeight(long itemId, int viewType, boolean expanded) {
+        final ItemAdapter<?> adapter = getItemAdapter();
+        if (adapter != null && itemId != RecyclerView.NO_ID) {
+            final int height = adapter.getCachedItemHeight(itemId, viewType, expanded, getWidth());
+            if (height >= 0) {
+                return height;
+            }
+        }
+        return mMeasuredHeights.get(viewType, -1);
+    }
+
+    private ItemAdapter<?> getItemAdapter() {
+        final RecyclerView recyclerView = mRecyclerView;
+        return recyclerView != null && recyclerView.getAdapter() instanceof ItemAdapter
+                ? (ItemAdapter<?>) recyclerView.getAdapter() : null;
+    }
+
+    @Override
+    public void onAttachedToWindow(RecyclerView view) {
+        super.onAttachedToWindow(view);
+        mRecyclerView = view;
+    }
+
+    @Override
+    public void onDetachedFromWindow(RecyclerView view, RecyclerView.Recycler recycler) {
+        super.onDetachedFromWindow(view, recycler);
+        mRecyclerView = null;
+    }
+
+    /**
+     * @return the number of children laid out entirely outside of the visible area by the last
+     * layout running predictive animations, i.e. the rows bound only to animate in or out
+     */
+    public int getLastOffscreenChildCount() {
+        return mLastOffscreenChildCount;
+    }
+
+    /**
+     * @return the total number of children laid out entirely outside of the visible area by the
+     * layouts running predictive animations
+     */
+    public int getOffscreenChildCount() {
+        return mOffscreenChildCount;
+    }
+
+    /**
+     * When the predictive animations are caused by items changing view type, the extra space
+     * is the sum of their height changes, which is what the rows below them travel; the layout
+     * direction is chosen by {@link LinearLayoutManager} from the last scroll. Other predictive
+     * animations, e.g. removals, get a full page as before.
+     */
     @Override
     protected int getExtraLayoutSpace(RecyclerView.State state) {
         final int extraSpace = super.getExtraLayoutSpace(state);
         if (state.willRunPredictiveAnimations()) {
-            return Math.max(getHeight(), extraSpace);
+            final int heightDelta = mHasPendingHeightChange && !mPendingHeightUnknown
+                    ? Math.min(mPendingHeightDelta, getHeight()) : getHeight();
+            return Math.max(heightDelta, extraSpace);
         }
         return extraSpace;
     }
+
+    @Override
+    public void onLayoutChildren(RecyclerView.Recycler recycler, RecyclerView.State state) {
+        mInPreLayout = state.isPreLayout();
+        try {
+            super.onLayoutChildren(recycler, state);
+        } finally {
+            mInPreLayout = false;
+        }
+    }
+
+    @Override
+    public void measureChildWithMargins(View child, int widthUsed, int heightUsed) {
+        super.measureChildWithMargins(child, widthUsed, heightUsed);
+        mMeasuredHeights.put(getItemViewType(child), child.getMeasuredHeight());
+        final ItemAdapter<?> adapter = getItemAdapter();
+        // in the pre-layout a changed view still shows the previous state of its item holder
+        if (adapter != null && adapter.hasStableIds() && !mInPreLayout) {
+            adapter.onItemViewMeasured(mRecyclerView.getChildViewHolder(child), getWidth(),
+                    child.getMeasuredHeight());
+        }
+    }
+
+    @Override
+    public void onLayoutCompleted(RecyclerView.State state) {
+        super.onLayoutCompleted(state);
+        if (state.willRunPredictiveAnimations()) {
+            final int top = getPaddingTop();
+            final int bottom = getHeight() - getPaddingBottom();
+            int offscreenChildCount = 0;
+            for (int i = getChildCount() - 1; i >= 0; i--) {
+                final View child = getChildAt(i);
+                if (getDecoratedBottom(child) <= top || getDecoratedTop(child) >= bottom) {
+                    offscreenChildCount++;
+                }
+            }
+            mLastOffscreenChildCount = offscreenChildCount;
+            mOffscreenChildCount += offscreenChildCount;
+        }
+        if (!state.isPreLayout()) {
+            mHasPendingHeightChange = false;
+            mPendingHeightUnknown = false;
+            mPendingHeightDelta = 0;
+        }
+    }
 }
@@ -21,7 +21,7 @@ import android.content.res.TypedArray;
 import android.support.v7.widget.AppCompatImageView;
 import android.util.AttributeSet;
 
-import com.sysdata.widget.accordion.utils.ThemeUtils;
+import com.sysdata.widget.accordion.utils.ThemedDrawableCache;
 
 /**
  * ImageView showing an up/down arrow. It can be used with FancyAccordionView in order to animate the
@@ -47,7 +47,8 @@ public class ArrowImageView extends AppCompatImageView {
     private void init(Context context, AttributeSet attrs) {
         setId(R.id.accordion_arrow_image_view);
         setScaleType(ScaleType.CENTER);
-        setBackgroundDrawable(ThemeUtils.resolveDrawable(context, R.attr.selectableItemBackgroundBorderless));
+        setBackgroundDrawable(
+                ThemedDrawableCache.resolveDrawable(context, R.attr.selectableItemBackgroundBorderless));
 
         boolean expanded = false;
         if (attrs != null) {
@@ -16,9 +16,14 @@
 
 package com.sysdata.widget.accordion;
 
+import android.animation.Animator;
+import android.support.v7.widget.RecyclerView;
 import android.view.View;
+import android.view.ViewParent;
 import android.widget.ImageView;
 
+import com.sysdata.widget.accordion.utils.AnimatorUtils;
+
 /**
  * Abstract ViewHolder for items that use {@link ArrowImageView} in theirs layouts.
  */
@@ -31,4 +36,45 @@ public abstract class ArrowItemViewHolder extends ItemAdapter.ItemViewHolder<Exp
 
         arrow = (ImageView) itemView.findViewById(R.id.accordion_arrow_image_view);
     }
-}
\ No newline at end of file
+
+    /**
+     * @return {@code true} if the {@link ItemAnimator} animating this holder uses
+     * {@link ItemAnimator#ANIMATION_MODE_RENDER_NODE}
+     */
+    protected boolean isRenderNodeAnimationMode() {
+        final ViewParent parent = itemView.getParent();
+        if (parent instanceof RecyclerView) {
+            final RecyclerView.ItemAnimator itemAnimator = ((RecyclerView) parent).getItemAnimator();
+            return itemAnimator instanceof ItemAnimator && ((ItemAnimator) itemAnimator)
+                    .getAnimationMode() == ItemAnimator.ANIMATION_MODE_RENDER_NODE;
+        }
+        return false;
+    }
+
+    /**
+     * @return an animator morphing the {@code target} between the bounds of {@code from} and
+     * {@code to}, by animating its bounds or, in {@link ItemAnimator#ANIMATION_MODE_RENDER_NODE},
+     * its translation and clip bounds while fading it from {@code fromAlpha} to {@code toAlpha}
+     */
+    Animator createMorphAnimator(View target, View from, View to, boolean renderNodeMode,
+                                 float fromAlpha, float toAlpha) {
+        return renderNodeMode
+                ? AnimatorUtils.getTransformAnimator(target, from, to, fromAlpha, toAlpha)
+                : AnimatorUtils.getBoundsAnimator(target, from, to);
+    }
+
+    /**
+     * @return an animator morphing the {@link #itemView}, already laid out with its new bounds,
+     * from the given bounds after an in-place change, like
+     * {@link #createMorphAnimator(View, View, View, boolean, float, float)} does
+     */
+    Animator createMorphAnimator(int fromLeft, int fromTop, int fromRight, int fromBottom,
+                                 boolean renderNodeMode) {
+        final View view = itemView;
+        return renderNodeMode
+                ? AnimatorUtils.getTransformAnimator(view, fromTop, fromBottom,
+                        view.getTop(), view.getBottom(), 1f, 1f)
+                : AnimatorUtils.getBoundsAnimator(view, fromLeft, fromTop, fromRight, fromBottom,
+                        view.getLeft(), view.getTop(), view.getRight(), view.getBottom());
+    }
+}
@@ -82,11 +82,12 @@ public abstract class CollapsedViewHolder extends ArrowItemViewHolder {
         }
 
         final boolean isCollapsing = this == newHolder;
+        final boolean renderNodeMode = isRenderNodeAnimationMode();
         setChangingViewsAlpha(isCollapsing ? 0f : 1f);
 
         final Animator changeAnimatorSet = isCollapsing
-                ? createCollapsingAnimator((ArrowItemViewHolder) oldHolder, duration)
-                : createExpandingAnimator((ArrowItemViewHolder) newHolder, duration);
+                ? createCollapsingAnimator((ArrowItemViewHolder) oldHolder, renderNodeMode, duration)
+                : createExpandingAnimator((ArrowItemViewHolder) newHolder, renderNodeMode, duration);
         changeAnimatorSet.addListener(new AnimatorListenerAdapter() {
             @Override
             public void onAnimationEnd(Animator animator) {
@@ -101,15 +102,16 @@ public abstract class CollapsedViewHolder extends ArrowItemViewHolder {
         return changeAnimatorSet;
     }
 
-    private Animator createExpandingAnimator(ArrowItemViewHolder newHolder, long duration) {
+    private Animator createExpandingAnimator(ArrowItemViewHolder newHolder, boolean renderNodeMode,
+                                             long duration) {
         if (arrow != null) {
             arrow.setVisibility(View.INVISIBLE);
         }
 
         final View oldView = itemView;
         final View newView = newHolder.itemView;
-        final Animator boundsAnimator = AnimatorUtils.getBoundsAnimator(oldView, oldView, newView)
-                .setDuration(duration);
+        final Animator boundsAnimator = createMorphAnimator(oldView, oldView, newView,
+                renderNodeMode, 1f, 0f).setDuration(duration);
         boundsAnimator.setInterpolator(AnimatorUtils.INTERPOLATOR_FAST_OUT_SLOW_IN);
 
         final AnimatorSet animatorSet = new AnimatorSet();
@@ -117,11 +119,12 @@ public abstract class CollapsedViewHolder extends ArrowItemViewHolder {
         return animatorSet;
     }
 
-    private Animator createCollapsingAnimator(ArrowItemViewHolder oldHolder, long duration) {
+    private Animator createCollapsingAnimator(ArrowItemViewHolder oldHolder, boolean renderNodeMode,
+                                              long duration) {
         final View oldView = oldHolder.itemView;
         final View newView = itemView;
-        final Animator boundsAnimator = AnimatorUtils.getBoundsAnimator(newView, oldView, newView)
-                .setDuration(duration);
+        final Animator boundsAnimator = createMorphAnimator(newView, oldView, newView,
+                renderNodeMode, 0f, 1f).setDuration(duration);
         boundsAnimator.setInterpolator(AnimatorUtils.INTERPOLATOR_FAST_OUT_SLOW_IN);
 
         final AnimatorSet animatorSet;
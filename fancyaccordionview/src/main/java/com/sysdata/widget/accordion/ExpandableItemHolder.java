@@ -21,40 +21,161 @@ import android.os.Bundle;
 public class ExpandableItemHolder<T extends Item> extends ItemAdapter.ItemHolder<T> {
 
     private static final String EXPANDED_KEY = "expanded";
+
+    /**
+     * Cached view type meaning that no factory is registered for the state.
+     */
+    static final int UNRESOLVED_VIEW_TYPE = 0;
     private boolean mExpanded;
 
+    /**
+     * Whether {@link #notifyExpansionChanged()} is notifying the change.
+     */
+    private boolean mNotifyingExpansionChange;
+
+    /**
+     * The adapter whose dataset this holder is part of, used to resolve the view type.
+     */
+    private AccordionItemAdapter mAdapter;
+
+    /**
+     * View types of the collapsed and expanded states cached by {@link #mViewTypesAdapter}.
+     */
+    private AccordionItemAdapter mViewTypesAdapter;
+    private int mViewTypesGeneration;
+    private int mCollapsedViewType;
+    private int mExpandedViewType;
+
     public ExpandableItemHolder(T item) {
         this(item, 0);
     }
 
     public ExpandableItemHolder(T item, int viewType) {
-        super(item, item.getUniqueId(), viewType);
+        super(item, item.getItemId(), viewType);
     }
 
+    /**
+     * @return the layout id of the view registered on the owning {@link FancyAccordionView} for
+     * the {@link #viewType} of this holder in its current expanded or collapsed state. When this
+     * holder is no longer part of the items of a {@link FancyAccordionView}, the layout id
+     * resolved by the last one it was part of, or {@code 0} if there is none.
+     */
     @Override
     public int getItemViewType() {
-        return isExpanded() ? FancyAccordionView.getExpandedViewHolderFactory(viewType).getItemViewLayoutId()
-                : FancyAccordionView.getCollapsedViewHolderFactory(viewType).getItemViewLayoutId();
+        if (mAdapter == null) {
+            return getResolvedViewType();
+        }
+        return mAdapter.resolveItemViewType(this);
+    }
+
+    void setAdapter(AccordionItemAdapter adapter) {
+        mAdapter = adapter;
+    }
+
+    AccordionItemAdapter getAdapter() {
+        return mAdapter;
+    }
+
+    boolean hasResolvedViewTypes(AccordionItemAdapter adapter, int generation) {
+        return mViewTypesAdapter == adapter && mViewTypesGeneration == generation;
+    }
+
+    void setResolvedViewTypes(AccordionItemAdapter adapter, int generation,
+                              int collapsedViewType, int expandedViewType) {
+        mCollapsedViewType = collapsedViewType;
+        mExpandedViewType = expandedViewType;
+        mViewTypesGeneration = generation;
+        mViewTypesAdapter = adapter;
+    }
+
+    /**
+     * @return the cached view type of the current state
+     */
+    int getResolvedViewType() {
+        return mExpanded ? mExpandedViewType : mCollapsedViewType;
+    }
+
+    /**
+     * @return the cached view type of the given state
+     */
+    int getResolvedViewType(boolean expanded) {
+        return expanded ? mExpandedViewType : mCollapsedViewType;
     }
 
     public void expand() {
         if (!isExpanded()) {
             mExpanded = true;
-            notifyItemChanged();
+            notifyExpansionChanged();
         }
     }
 
     public void collapse() {
         if (isExpanded()) {
             mExpanded = false;
+            notifyExpansionChanged();
+        }
+    }
+
+    /**
+     * Notifies the change of the expanded state. When both states are shown by the same view type
+     * the item view is updated in place with an {@link ItemAdapter.ExpansionChanged} payload,
+     * otherwise the collapsed and expanded views are swapped by a full change.
+     */
+    private void notifyExpansionChanged() {
+        mNotifyingExpansionChange = true;
+        try {
+            if (mAdapter != null) {
+                mAdapter.onItemExpansionChanged(this);
+                final int viewType = getResolvedViewType(true);
+                if (viewType != UNRESOLVED_VIEW_TYPE && viewType == getResolvedViewType(false)) {
+                    notifyItemChanged(ItemAdapter.ExpansionChanged.INSTANCE);
+                    return;
+                }
+            }
             notifyItemChanged();
+        } finally {
+            mNotifyingExpansionChange = false;
         }
     }
 
+    @Override
+    boolean isNotifyingExpansionChange() {
+        return mNotifyingExpansionChange;
+    }
+
+    /**
+     * Sets the expanded state without notifying the change, for holders not bound yet.
+     */
+    void setExpanded(boolean expanded) {
+        mExpanded = expanded;
+    }
+
     public boolean isExpanded() {
         return mExpanded;
     }
 
+    /**
+     * Declares that the only per-instance state of this holder is the expanded flag, so that it
+     * can be transferred without a {@link Bundle} round trip when the dataset changes. Subclasses
+     * that save additional state in {@link #onSaveInstanceState(Bundle)} must return
+     * {@code false}, which is the default for every subclass.
+     *
+     * @return {@code true} if the expanded flag is the only per-instance state of this holder
+     */
+    protected boolean hasOnlyExpansionState() {
+        return getClass() == ExpandableItemHolder.class;
+    }
+
+    @Override
+    protected boolean onTransferInstanceState(ItemAdapter.ItemHolder<?> oldItemHolder) {
+        if (hasOnlyExpansionState() && oldItemHolder instanceof ExpandableItemHolder
+                && ((ExpandableItemHolder) oldItemHolder).hasOnlyExpansionState()) {
+            mExpanded = ((ExpandableItemHolder) oldItemHolder).mExpanded;
+            return true;
+        }
+        return super.onTransferInstanceState(oldItemHolder);
+    }
+
     @Override
     public void onSaveInstanceState(Bundle bundle) {
         super.onSaveInstanceState(bundle);
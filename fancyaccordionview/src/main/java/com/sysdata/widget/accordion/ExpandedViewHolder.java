@@ -25,14 +25,17 @@ import android.content.Context;
 import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
 import android.graphics.drawable.LayerDrawable;
+import android.os.Looper;
+import android.os.MessageQueue;
 import android.support.v4.content.ContextCompat;
+import android.support.v7.widget.RecyclerView;
 import android.support.v7.widget.RecyclerView.ViewHolder;
 import android.view.View;
 import android.view.ViewGroup;
 
 import com.sysdata.widget.accordion.utils.AnimatorUtils;
 import com.sysdata.widget.accordion.utils.SystemUtils;
-import com.sysdata.widget.accordion.utils.ThemeUtils;
+import com.sysdata.widget.accordion.utils.ThemedDrawableCache;
 
 import java.util.List;
 
@@ -40,16 +43,64 @@ import static android.view.View.TRANSLATION_Y;
 
 /**
  * A ViewHolder containing views for an item in expanded state.
+ * <p/>
+ * Expanded views with heavy sections (e.g. charts or image grids) can be bound in two phases:
+ * {@link #onBindItemView(ItemAdapter.ItemHolder)} binds a cheap skeleton already sized to the
+ * final height, so that the expand animation can start right away, while
+ * {@link #onBindDeferredContent(ExpandableItemHolder)} fills the heavy sections once the
+ * animations are over and the main thread is idle. See {@link #hasDeferredContent()}. The height
+ * measured the last time the item was expanded is returned by {@link #getCachedItemHeight()}.
  */
 public abstract class ExpandedViewHolder extends ArrowItemViewHolder {
 
+    /**
+     * Binds the deferred content once the main thread is idle and no item animation is running.
+     */
+    private final MessageQueue.IdleHandler mDeferredContentBinder = new MessageQueue.IdleHandler() {
+        @Override
+        public boolean queueIdle() {
+            mDeferredContentScheduled = false;
+            if (!mDeferredContentPending) {
+                return false;
+            }
+
+            final RecyclerView.ItemAnimator itemAnimator = itemView.getParent() instanceof RecyclerView
+                    ? ((RecyclerView) itemView.getParent()).getItemAnimator() : null;
+            if (itemAnimator != null && itemAnimator.isRunning()) {
+                // wait for the expand animation, then for the next idle time
+                final int bindGeneration = mBindGeneration;
+                itemAnimator.isRunning(new RecyclerView.ItemAnimator.ItemAnimatorFinishedListener() {
+                    @Override
+                    public void onAnimationsFinished() {
+                        if (bindGeneration == mBindGeneration) {
+                            scheduleDeferredContent();
+                        }
+                    }
+                });
+                return false;
+            }
+
+            bindDeferredContent();
+            return false;
+        }
+    };
+
+    /**
+     * Incremented on every bind and recycle, to discard the stale deferred binds.
+     */
+    private int mBindGeneration;
+
+    private boolean mDeferredContentPending;
+    private boolean mDeferredContentScheduled;
+    private boolean mDeferredContentBound;
+
     protected ExpandedViewHolder(View itemView) {
         super(itemView);
 
         final Context context = itemView.getContext();
         itemView.setBackground(new LayerDrawable(new Drawable[]{
-                ContextCompat.getDrawable(context, R.drawable.alarm_background_expanded),
-                ThemeUtils.resolveDrawable(context, R.attr.selectableItemBackground)
+                ThemedDrawableCache.getDrawable(context, R.drawable.alarm_background_expanded),
+                ThemedDrawableCache.resolveDrawable(context, R.attr.selectableItemBackground)
         }));
 
         // Collapse handler
@@ -79,6 +130,88 @@ public abstract class ExpandedViewHolder extends ArrowItemViewHolder {
         itemView.setImportantForAccessibility(View.IMPORTANT_FOR_ACCESSIBILITY_NO);
     }
 
+    /**
+     * Subclassers binding their heavy sections in
+     * {@link #onBindDeferredContent(ExpandableItemHolder)} must return {@code true}.
+     *
+     * @return {@code true} if this holder binds part of its content after the expand animation
+     */
+    protected boolean hasDeferredContent() {
+        return false;
+    }
+
+    /**
+     * Called after {@link #onBindItemView(ItemAdapter.ItemHolder)}, once the item animations are
+     * over and the main thread is idle, to bind the heavy sections of the expanded view. Not
+     * called if the item is collapsed or the holder is re-bound or recycled in the meantime.
+     *
+     * @param itemHolder the {@link ExpandableItemHolder} bound to this holder
+     */
+    protected void onBindDeferredContent(ExpandableItemHolder itemHolder) {
+        // for subclassers
+    }
+
+    /**
+     * @return {@code true} if {@link #onBindDeferredContent(ExpandableItemHolder)} has been
+     * called since the last bind
+     */
+    protected final boolean isDeferredContentBound() {
+        return mDeferredContentBound;
+    }
+
+    /**
+     * Binds the deferred content right away if it is still pending, e.g. when the user interacts
+     * with a heavy section before it is bound.
+     */
+    public final void bindDeferredContent() {
+        if (!mDeferredContentPending) {
+            return;
+        }
+        cancelDeferredContentScheduling();
+        mDeferredContentPending = false;
+
+        final ExpandableItemHolder itemHolder = getItemHolder();
+        if (itemHolder != null && itemHolder.isExpanded()) {
+            mDeferredContentBound = true;
+            onBindDeferredContent(itemHolder);
+        }
+    }
+
+    @Override
+    void onItemViewBound() {
+        resetDeferredContent();
+        if (hasDeferredContent()) {
+            mDeferredContentPending = true;
+            scheduleDeferredContent();
+        }
+    }
+
+    @Override
+    void onItemViewRecycled() {
+        resetDeferredContent();
+    }
+
+    private void scheduleDeferredContent() {
+        if (!mDeferredContentScheduled) {
+            mDeferredContentScheduled = true;
+            Looper.myQueue().addIdleHandler(mDeferredContentBinder);
+        }
+    }
+
+    private void cancelDeferredContentScheduling() {
+        if (mDeferredContentScheduled) {
+            mDeferredContentScheduled = false;
+            Looper.myQueue().removeIdleHandler(mDeferredContentBinder);
+        }
+    }
+
+    private void resetDeferredContent() {
+        mBindGeneration++;
+        mDeferredContentPending = false;
+        mDeferredContentBound = false;
+        cancelDeferredContentScheduling();
+    }
+
     @Override
     public Animator onAnimateChange(List<Object> payloads, int fromLeft, int fromTop, int fromRight,
                                     int fromBottom, long duration) {
@@ -86,16 +219,14 @@ public abstract class ExpandedViewHolder extends ArrowItemViewHolder {
             return null;
         }
 
+        final Animator boundsAnimator = createMorphAnimator(fromLeft, fromTop, fromRight,
+                fromBottom, isRenderNodeAnimationMode());
         final AnimatorSet animatorSet = new AnimatorSet();
         if (arrow != null) {
-            animatorSet.playTogether(AnimatorUtils.getBoundsAnimator(itemView,
-                    fromLeft, fromTop, fromRight, fromBottom,
-                    itemView.getLeft(), itemView.getTop(), itemView.getRight(), itemView.getBottom()),
+            animatorSet.playTogether(boundsAnimator,
                     ObjectAnimator.ofFloat(arrow, TRANSLATION_Y, 0f));
         } else {
-            animatorSet.playTogether(AnimatorUtils.getBoundsAnimator(itemView,
-                    fromLeft, fromTop, fromRight, fromBottom,
-                    itemView.getLeft(), itemView.getTop(), itemView.getRight(), itemView.getBottom()));
+            animatorSet.playTogether(boundsAnimator);
         }
         animatorSet.addListener(new AnimatorListenerAdapter() {
             @Override
@@ -125,12 +256,14 @@ public abstract class ExpandedViewHolder extends ArrowItemViewHolder {
         }
 
         final boolean isExpanding = this == newHolder;
-        AnimatorUtils.setBackgroundAlpha(itemView, isExpanding ? 0 : 255);
+        final boolean renderNodeMode = isRenderNodeAnimationMode();
+        // in render node mode the whole item view fades instead of its background
+        AnimatorUtils.setBackgroundAlpha(itemView, isExpanding && !renderNodeMode ? 0 : 255);
         setChangingViewsAlpha(isExpanding ? 0f : 1f);
 
         final Animator changeAnimatorSet = isExpanding
-                ? createExpandingAnimator((ArrowItemViewHolder) oldHolder, duration)
-                : createCollapsingAnimator((ArrowItemViewHolder) newHolder, duration);
+                ? createExpandingAnimator((ArrowItemViewHolder) oldHolder, renderNodeMode, duration)
+                : createCollapsingAnimator((ArrowItemViewHolder) newHolder, renderNodeMode, duration);
         changeAnimatorSet.addListener(new AnimatorListenerAdapter() {
             @Override
             public void onAnimationEnd(Animator animator) {
@@ -146,7 +279,8 @@ public abstract class ExpandedViewHolder extends ArrowItemViewHolder {
         return changeAnimatorSet;
     }
 
-    private Animator createCollapsingAnimator(ArrowItemViewHolder newHolder, long duration) {
+    private Animator createCollapsingAnimator(ArrowItemViewHolder newHolder, boolean renderNodeMode,
+                                              long duration) {
         if (arrow != null) {
             arrow.setVisibility(View.INVISIBLE);
         }
@@ -154,29 +288,39 @@ public abstract class ExpandedViewHolder extends ArrowItemViewHolder {
         final View oldView = itemView;
         final View newView = newHolder.itemView;
 
-        final Animator backgroundAnimator = ObjectAnimator.ofPropertyValuesHolder(oldView,
-                PropertyValuesHolder.ofInt(AnimatorUtils.BACKGROUND_ALPHA, 255, 0));
-        backgroundAnimator.setDuration(duration);
-
-        final Animator boundsAnimator = AnimatorUtils.getBoundsAnimator(oldView, oldView, newView);
+        final Animator boundsAnimator = createMorphAnimator(oldView, oldView, newView,
+                renderNodeMode, 1f, 0f);
         boundsAnimator.setDuration(duration);
         boundsAnimator.setInterpolator(AnimatorUtils.INTERPOLATOR_FAST_OUT_SLOW_IN);
 
         final AnimatorSet animatorSet = new AnimatorSet();
-        animatorSet.playTogether(backgroundAnimator, boundsAnimator);
+        if (renderNodeMode) {
+            animatorSet.playTogether(boundsAnimator);
+        } else {
+            final Animator backgroundAnimator = ObjectAnimator.ofPropertyValuesHolder(oldView,
+                    PropertyValuesHolder.ofInt(AnimatorUtils.BACKGROUND_ALPHA, 255, 0));
+            backgroundAnimator.setDuration(duration);
+            animatorSet.playTogether(backgroundAnimator, boundsAnimator);
+        }
         return animatorSet;
     }
 
-    private Animator createExpandingAnimator(ArrowItemViewHolder oldHolder, long duration) {
+    private Animator createExpandingAnimator(ArrowItemViewHolder oldHolder, boolean renderNodeMode,
+                                             long duration) {
         final View oldView = oldHolder.itemView;
         final View newView = itemView;
-        final Animator boundsAnimator = AnimatorUtils.getBoundsAnimator(newView, oldView, newView);
+        final Animator boundsAnimator = createMorphAnimator(newView, oldView, newView,
+                renderNodeMode, 0f, 1f);
         boundsAnimator.setDuration(duration);
         boundsAnimator.setInterpolator(AnimatorUtils.INTERPOLATOR_FAST_OUT_SLOW_IN);
 
-        final Animator backgroundAnimator = ObjectAnimator.ofPropertyValuesHolder(newView,
+        // the item view already fades in render node mode
+        final Animator backgroundAnimator = renderNodeMode ? null
+                : ObjectAnimator.ofPropertyValuesHolder(newView,
                 PropertyValuesHolder.ofInt(AnimatorUtils.BACKGROUND_ALPHA, 0, 255));
-        backgroundAnimator.setDuration(duration);
+        if (backgroundAnimator != null) {
+            backgroundAnimator.setDuration(duration);
+        }
 
         final AnimatorSet animatorSet;
         if (arrow != null) {
@@ -195,7 +339,10 @@ public abstract class ExpandedViewHolder extends ArrowItemViewHolder {
             arrowAnimation.setInterpolator(AnimatorUtils.INTERPOLATOR_FAST_OUT_SLOW_IN);
 
             animatorSet = new AnimatorSet();
-            animatorSet.playTogether(backgroundAnimator, boundsAnimator, arrowAnimation);
+            final AnimatorSet.Builder builder = animatorSet.play(boundsAnimator).with(arrowAnimation);
+            if (backgroundAnimator != null) {
+                builder.with(backgroundAnimator);
+            }
             animatorSet.addListener(new AnimatorListenerAdapter() {
                 @Override
                 public void onAnimationStart(Animator animator) {
@@ -204,7 +351,10 @@ public abstract class ExpandedViewHolder extends ArrowItemViewHolder {
             });
         } else {
             animatorSet = new AnimatorSet();
-            animatorSet.playTogether(backgroundAnimator, boundsAnimator);
+            final AnimatorSet.Builder builder = animatorSet.play(boundsAnimator);
+            if (backgroundAnimator != null) {
+                builder.with(backgroundAnimator);
+            }
         }
 
         return animatorSet;
@@ -17,16 +17,27 @@
 package com.sysdata.widget.accordion;
 
 import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Canvas;
+import android.os.Parcel;
+import android.os.Parcelable;
 import android.os.SystemClock;
 import android.support.annotation.Nullable;
+import android.support.v4.os.ParcelableCompat;
+import android.support.v4.os.ParcelableCompatCreatorCallbacks;
+import android.support.v4.view.AbsSavedState;
+import android.support.v4.view.ViewCompat;
 import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
 import android.util.AttributeSet;
 import android.util.Log;
-import android.util.SparseArray;
+import android.util.SparseIntArray;
 import android.view.MotionEvent;
 
+import com.sysdata.widget.accordion.collections.LongLruSet;
+
 import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * Wrapper around RecyclerView to prevent simultaneous layout passes,
@@ -34,16 +45,121 @@ import java.util.List;
  */
 public class FancyAccordionView extends RecyclerView {
 
+    private static final String TAG = "FancyAccordionView";
+
     private long mScrollToItemId = Item.INVALID_ID;
-    private long mExpandedItemId = Item.INVALID_ID;
+
+    /**
+     * Ids of the expanded items, from the least to the most recently expanded one.
+     */
+    private final LongLruSet mExpandedItemIds = new LongLruSet();
+
+    /**
+     * Maximum number of items that can be expanded at the same time.
+     */
+    private int mMaxExpandedItems = 1;
 
     private boolean mIgnoreRequestLayout;
     private long mCurrentUpdateToken;
 
-    private static SparseArray<ItemAdapter.ItemViewHolder.Factory> sCollapsedViewHolderFactories = new SparseArray<>();
-    private static SparseArray<ItemAdapter.ItemViewHolder.Factory> sExpandedViewHolderFactories = new SparseArray<>();
+    private AccordionItemAdapter mItemAdapter;
 
-    private ItemAdapter<ExpandableItemHolder> mItemAdapter;
+    /**
+     * When set, adapter updates are dispatched as granular changes computed by
+     * {@link ItemAdapter#setItems(List, ItemAdapter.ContentComparator)}.
+     */
+    private ItemAdapter.ContentComparator<? super ExpandableItemHolder> mContentComparator;
+
+    /**
+     * When set, adapter updates are calculated on this executor instead of the main thread.
+     */
+    private Executor mDiffExecutor;
+
+    /**
+     * Token of the most recent adapter update submitted to {@link #mDiffExecutor}.
+     */
+    private long mCalculatingUpdateToken;
+
+    /**
+     * Single slot holding the most recent adapter update deferred by
+     * {@link #deferAdapterUpdate(List, ItemAdapter.ItemsUpdate, long)}.
+     */
+    private boolean mHasPendingUpdate;
+    private List<ExpandableItemHolder> mPendingItems;
+    private ItemAdapter.ItemsUpdate<ExpandableItemHolder> mPendingItemsUpdate;
+    private long mPendingUpdateToken;
+
+    /**
+     * Whether {@link #mPendingUpdateFlusher} is registered to flush the pending update slot.
+     */
+    private boolean mPendingUpdateScheduled;
+
+    /**
+     * Number of deferred adapter updates replaced by more recent ones before being applied.
+     */
+    private int mCoalescedUpdateCount;
+
+    /**
+     * Applies the pending update once the animations are finished or the layout is computed.
+     */
+    private final PendingUpdateFlusher mPendingUpdateFlusher = new PendingUpdateFlusher();
+
+    /**
+     * Creates the view holders requested by {@link #prewarmViewHolders(int, int)} while idle.
+     */
+    private final ViewHolderPrewarmer mViewHolderPrewarmer = new ViewHolderPrewarmer(this);
+
+    /**
+     * Number of items past the visible ones whose views are inflated ahead of the scroll.
+     */
+    private static final int PREINFLATE_LOOKAHEAD = 2;
+
+    /**
+     * Inflates the item views in background, {@code null} unless enabled via
+     * {@link #setAsyncInflationEnabled(boolean)}.
+     */
+    private ItemViewPreinflater mItemViewPreinflater;
+
+    /**
+     * Number of item views to preinflate by view type, reused across scroll events.
+     */
+    private final SparseIntArray mPreinflateCounts = new SparseIntArray();
+
+    /**
+     * Whether the touch events are delivered to the list while the items are animating.
+     */
+    private boolean mInterruptibleAnimations;
+
+    /**
+     * Time of the first touch event received during an animation and not answered yet by a
+     * scrolled frame, or {@code 0} if none.
+     */
+    private long mPendingInputEventTime;
+    private boolean mScrolledSinceInputEvent;
+    private boolean mMovedSinceInputEvent;
+
+    /**
+     * Statistics of the latency between a touch event received during an animation and the first
+     * frame drawn after the list scrolled in response.
+     */
+    private int mAnimationInputLatencyCount;
+    private long mAnimationInputLatencySum;
+    private long mMaxAnimationInputLatency;
+
+    private final OnScrollListener mPreinflateScrollListener = new OnScrollListener() {
+        @Override
+        public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+            // RecyclerView also reports a (0, 0) scroll after a layout changes the visible items
+            preinflateItemViews(dy);
+        }
+
+        @Override
+        public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+            if (newState == SCROLL_STATE_IDLE) {
+                preinflateItemViews(0);
+            }
+        }
+    };
 
     public FancyAccordionView(Context context) {
         this(context, null);
@@ -59,8 +175,31 @@ public class FancyAccordionView extends RecyclerView {
         addOnItemTouchListener(new RecyclerView.SimpleOnItemTouchListener() {
             @Override
             public boolean onInterceptTouchEvent(RecyclerView rv, MotionEvent e) {
+                trackAnimationInput(e);
                 // Disable scrolling/user action to prevent choppy animations.
-                return rv.getItemAnimator().isRunning();
+                return !mInterruptibleAnimations && rv.getItemAnimator().isRunning();
+            }
+
+            @Override
+            public void onTouchEvent(RecyclerView rv, MotionEvent e) {
+                trackAnimationInput(e);
+            }
+        });
+        addOnScrollListener(new OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+                if (newState == SCROLL_STATE_DRAGGING && mInterruptibleAnimations
+                        && getItemAnimator().isRunning()) {
+                    // Fast-forward the animations to their final state and keep scrolling.
+                    getItemAnimator().endAnimations();
+                }
+            }
+
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                if (mPendingInputEventTime != 0L && (dx != 0 || dy != 0)) {
+                    mScrolledSinceInputEvent = true;
+                }
             }
         });
 
@@ -71,39 +210,88 @@ public class FancyAccordionView extends RecyclerView {
         itemAnimator.setMoveDuration(300L);
         setItemAnimator(itemAnimator);
 
-        mItemAdapter = new ItemAdapter<>();
+        mItemAdapter = new AccordionItemAdapter();
         mItemAdapter.setHasStableIds();
+        mItemAdapter.setExpandedItemIds(mExpandedItemIds);
         mItemAdapter.setOnItemChangedListener(new ItemAdapter.OnItemChangedListener() {
             @Override
             public void onItemChanged(ItemAdapter.ItemHolder<?> holder) {
                 if (((ExpandableItemHolder) holder).isExpanded()) {
-                    if (mExpandedItemId != holder.itemId) {
-                        // Collapse the prior expanded item.
-                        final ExpandableItemHolder aih = mItemAdapter.findItemById(mExpandedItemId);
-                        if (aih != null) {
-                            aih.collapse();
-                        }
+                    if (!mExpandedItemIds.contains(holder.itemId)) {
+                        // Collapse the least recently expanded items exceeding the limit.
+                        collapseEldestExpandedItems(mMaxExpandedItems - 1);
                         // Record the freshly expanded item.
-                        mExpandedItemId = holder.itemId;
-                        final RecyclerView.ViewHolder viewHolder = findViewHolderForItemId(mExpandedItemId);
+                        mExpandedItemIds.add(holder.itemId);
+                        final RecyclerView.ViewHolder viewHolder = findViewHolderForItemId(holder.itemId);
                         if (viewHolder != null) {
                             smoothScrollTo(viewHolder.getAdapterPosition());
                         }
                     }
-                } else if (mExpandedItemId == holder.itemId) {
-                    // The expanded item is now collapsed so update the tracking id.
-                    mExpandedItemId = Item.INVALID_ID;
+                } else {
+                    // The expanded item is now collapsed so update the tracking ids.
+                    mExpandedItemIds.remove(holder.itemId);
                 }
             }
 
             @Override
             public void onItemChanged(ItemAdapter.ItemHolder<?> holder, Object payload) {
-                /* No additional work to do */
+                // Items showing both states with the same view are expanded or collapsed in place.
+                if (payload == ItemAdapter.ExpansionChanged.INSTANCE) {
+                    onItemChanged(holder);
+                }
             }
         });
         setAdapter(mItemAdapter);
     }
 
+    /**
+     * Tracks the touch gestures started during an animation to measure how long the list takes to
+     * respond to them.
+     */
+    private void trackAnimationInput(MotionEvent e) {
+        switch (e.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+            case MotionEvent.ACTION_MOVE:
+                if (mPendingInputEventTime == 0L) {
+                    if (getItemAnimator().isRunning()) {
+                        mPendingInputEventTime = e.getEventTime();
+                        mScrolledSinceInputEvent = false;
+                        mMovedSinceInputEvent = false;
+                    }
+                } else if (e.getActionMasked() == MotionEvent.ACTION_MOVE) {
+                    mMovedSinceInputEvent = true;
+                }
+                break;
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                if (mPendingInputEventTime != 0L && !mScrolledSinceInputEvent) {
+                    if (mMovedSinceInputEvent) {
+                        // the whole drag went unanswered
+                        recordAnimationInputLatency(e.getEventTime() - mPendingInputEventTime);
+                    }
+                    mPendingInputEventTime = 0L;
+                }
+                break;
+        }
+    }
+
+    private void recordAnimationInputLatency(long latency) {
+        mAnimationInputLatencyCount++;
+        mAnimationInputLatencySum += latency;
+        mMaxAnimationInputLatency = Math.max(mMaxAnimationInputLatency, latency);
+    }
+
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        super.dispatchDraw(canvas);
+
+        if (mScrolledSinceInputEvent) {
+            recordAnimationInputLatency(SystemClock.uptimeMillis() - mPendingInputEventTime);
+            mPendingInputEventTime = 0L;
+            mScrolledSinceInputEvent = false;
+        }
+    }
+
     @Override
     protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
         mIgnoreRequestLayout = true;
@@ -131,16 +319,7 @@ public class FancyAccordionView extends RecyclerView {
      * @param alarmId identifies the alarm to be displayed
      */
     private void scrollTo(long alarmId) {
-        final int alarmCount = mItemAdapter.getItemCount();
-        int alarmPosition = -1;
-        for (int i = 0; i < alarmCount; i++) {
-            long id = mItemAdapter.getItemId(i);
-            if (id == alarmId) {
-                alarmPosition = i;
-                break;
-            }
-        }
-
+        final int alarmPosition = mItemAdapter.findItemPositionById(alarmId);
         if (alarmPosition >= 0) {
             mItemAdapter.findItemById(alarmId).expand();
             smoothScrollTo(alarmPosition);
@@ -186,8 +365,7 @@ public class FancyAccordionView extends RecyclerView {
      * @param viewType the view type used to identify the factory to use
      */
     public void setCollapsedViewHolderFactory(ItemAdapter.ItemViewHolder.Factory factory, ItemAdapter.OnItemClickedListener listener, int viewType) {
-        sCollapsedViewHolderFactories.append(viewType, factory);
-        mItemAdapter.withViewTypes(factory, listener, factory.getItemViewLayoutId());
+        mItemAdapter.setCollapsedViewHolderFactory(factory, listener, viewType);
     }
 
     /**
@@ -210,13 +388,229 @@ public class FancyAccordionView extends RecyclerView {
      * @param viewType the view type used to identify the factory to use
      */
     public void setExpandedViewHolderFactory(ItemAdapter.ItemViewHolder.Factory factory, ItemAdapter.OnItemClickedListener listener, int viewType) {
-        sExpandedViewHolderFactories.append(viewType, factory);
-        mItemAdapter.withViewTypes(factory, listener, factory.getItemViewLayoutId());
+        mItemAdapter.setExpandedViewHolderFactory(factory, listener, viewType);
+    }
+
+    /**
+     * Creates the given number of collapsed and expanded view holders for every registered view
+     * type while the main thread is idle, and keeps them in the {@link RecycledViewPool} so that
+     * the first expand of each view type does not inflate its layout. The pool capacity of each
+     * view type is raised to the requested count when needed.
+     * <p/>
+     * Call this method after the factories are registered, e.g. right after the first
+     * {@link #setAdapterItems(List)}. The prewarm is cancelled when the view is detached from its
+     * window.
+     *
+     * @param collapsedCount the number of view holders to create per collapsed view type
+     * @param expandedCount  the number of view holders to create per expanded view type
+     */
+    public void prewarmViewHolders(int collapsedCount, int expandedCount) {
+        mItemAdapter.requestViewHolders(mViewHolderPrewarmer, collapsedCount, expandedCount);
+        if (ViewCompat.isAttachedToWindow(this)) {
+            mViewHolderPrewarmer.schedule();
+        }
+    }
+
+    /**
+     * Stops creating the view holders requested by {@link #prewarmViewHolders(int, int)}.
+     */
+    public void cancelViewHolderPrewarm() {
+        mViewHolderPrewarmer.cancel();
+    }
+
+    /**
+     * Enables the inflation of item views on a background thread ahead of need. While scrolling,
+     * the views of the items about to appear are inflated; when the list settles, an expanded
+     * view is inflated for every view type visible on screen, ready for the next expand.
+     * <p/>
+     * Only the view types whose factory implements
+     * {@link ItemAdapter.ItemViewHolder.InflatedViewFactory} are inflated ahead of time, the
+     * others and any view type whose views are not ready yet are inflated synchronously.
+     *
+     * @param enabled {@code true} to inflate the item views ahead of time
+     */
+    public void setAsyncInflationEnabled(boolean enabled) {
+        if (enabled == (mItemViewPreinflater != null)) {
+            return;
+        }
+
+        if (enabled) {
+            mItemViewPreinflater = new ItemViewPreinflater(this);
+            addOnScrollListener(mPreinflateScrollListener);
+        } else {
+            mItemViewPreinflater.setEnabled(false);
+            mItemViewPreinflater = null;
+            removeOnScrollListener(mPreinflateScrollListener);
+        }
+        mItemAdapter.setItemViewPreinflater(mItemViewPreinflater);
+    }
+
+    /**
+     * Requests the item views likely needed next to the {@link #mItemViewPreinflater}.
+     *
+     * @param dy the vertical scroll amount, {@code 0} if the list is not scrolling
+     */
+    private void preinflateItemViews(int dy) {
+        final LinearLayoutManager layoutManager = (LinearLayoutManager) getLayoutManager();
+        final int first = layoutManager.findFirstVisibleItemPosition();
+        final int last = layoutManager.findLastVisibleItemPosition();
+        if (mItemViewPreinflater == null || first == NO_POSITION) {
+            return;
+        }
+
+        final SparseIntArray counts = mPreinflateCounts;
+        counts.clear();
+        if (dy != 0) {
+            // the items about to scroll into view, in their current state
+            final int step = dy > 0 ? 1 : -1;
+            int position = dy > 0 ? last : first;
+            for (int i = 0; i < PREINFLATE_LOOKAHEAD; i++) {
+                position += step;
+                if (position < 0 || position >= mItemAdapter.getItemCount()) {
+                    break;
+                }
+                final int viewType = mItemAdapter.getItemViewType(position);
+                counts.put(viewType, counts.get(viewType) + 1);
+            }
+        } else {
+            // the visible items that may be expanded next, one view per view type
+            for (int position = first; position <= last; position++) {
+                counts.put(mItemAdapter.getItemViewType(position, true), 1);
+            }
+            counts.delete(ExpandableItemHolder.UNRESOLVED_VIEW_TYPE);
+        }
+
+        for (int i = 0; i < counts.size(); i++) {
+            final int viewType = counts.keyAt(i);
+            if (mItemAdapter.acceptsPreinflatedItemViews(viewType)) {
+                mItemViewPreinflater.request(viewType, counts.valueAt(i));
+            }
+        }
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        mViewHolderPrewarmer.schedule();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        mViewHolderPrewarmer.cancel();
+    }
+
+    /**
+     * The measured heights of the items depend on the font scale and screen size, hence are
+     * forgotten on any configuration change.
+     */
+    @Override
+    protected void onConfigurationChanged(Configuration newConfig) {
+        super.onConfigurationChanged(newConfig);
+        mItemAdapter.clearCachedItemHeights();
+    }
+
+    /**
+     * Enables the interruptible animations. By default the touch events are ignored while the
+     * items are animating, so the list does not respond for the duration of an expand or a
+     * collapse. When enabled, the touch events are delivered to the list: dragging it fast-forwards
+     * the running animations to their final state and scrolls from there.
+     *
+     * @param enabled {@code true} to let the user scroll during the animations
+     */
+    public void setInterruptibleAnimationsEnabled(boolean enabled) {
+        mInterruptibleAnimations = enabled;
+    }
+
+    /**
+     * @return {@code true} if the user can scroll during the animations
+     */
+    public boolean isInterruptibleAnimationsEnabled() {
+        return mInterruptibleAnimations;
+    }
+
+    /**
+     * @return the number of touch interactions started during an animation whose latency has been
+     * measured, see {@link #getAverageAnimationInputLatency()}
+     */
+    public int getAnimationInputLatencyCount() {
+        return mAnimationInputLatencyCount;
+    }
+
+    /**
+     * @return the average time in milliseconds between the first touch event received during an
+     * animation and the first frame drawn after the list scrolled in response, or the end of the
+     * drag if the list never scrolled, {@code 0} if no latency has been measured
+     */
+    public long getAverageAnimationInputLatency() {
+        return mAnimationInputLatencyCount == 0
+                ? 0L : mAnimationInputLatencySum / mAnimationInputLatencyCount;
+    }
+
+    /**
+     * @return the maximum latency in milliseconds measured by
+     * {@link #getAverageAnimationInputLatency()}
+     */
+    public long getMaxAnimationInputLatency() {
+        return mMaxAnimationInputLatency;
+    }
+
+    /**
+     * Clears the input latency measured so far.
+     */
+    public void resetAnimationInputLatency() {
+        mAnimationInputLatencyCount = 0;
+        mAnimationInputLatencySum = 0L;
+        mMaxAnimationInputLatency = 0L;
+        mPendingInputEventTime = 0L;
+        mScrolledSinceInputEvent = false;
+    }
+
+    /**
+     * Sets how expand and collapse morphs are animated, see
+     * {@link com.sysdata.widget.accordion.ItemAnimator#setAnimationMode(int)}.
+     *
+     * @param animationMode one of the {@code ANIMATION_MODE_*} constants of
+     *                      {@link com.sysdata.widget.accordion.ItemAnimator}
+     */
+    public void setAnimationMode(@com.sysdata.widget.accordion.ItemAnimator.AnimationMode int animationMode) {
+        final RecyclerView.ItemAnimator itemAnimator = getItemAnimator();
+        if (itemAnimator instanceof com.sysdata.widget.accordion.ItemAnimator) {
+            ((com.sysdata.widget.accordion.ItemAnimator) itemAnimator).setAnimationMode(animationMode);
+        }
+    }
+
+    /**
+     * Enables or disables the merging of the payloads notified by the same item within a frame,
+     * useful when items are updated many times per second via
+     * {@link ItemAdapter.ItemHolder#notifyItemChanged(Object)}.
+     *
+     * @param enabled {@code true} to re-bind each changed item at most once per frame
+     * @see ItemAdapter#setPayloadBatchingEnabled(boolean)
+     */
+    public void setPayloadBatchingEnabled(boolean enabled) {
+        mItemAdapter.setPayloadBatchingEnabled(enabled);
+    }
+
+    /**
+     * Enables or disables the coalescing of the item changes notified within a frame into
+     * range changes, useful when a model update touches many items at once via
+     * {@link ItemAdapter.ItemHolder#notifyItemChanged()}.
+     *
+     * @param enabled {@code true} to dispatch the changed items once per frame
+     * @see ItemAdapter#setChangeBatchingEnabled(boolean)
+     */
+    public void setChangeBatchingEnabled(boolean enabled) {
+        mItemAdapter.setChangeBatchingEnabled(enabled);
     }
 
     /**
      * Updates the adapters items, deferring the update until the current animation is finished or
      * if no animation is running then the listener will be automatically be invoked immediately.
+     * <p/>
+     * Large datasets can be set as a {@link PagedItemList}, whose item holders are loaded in
+     * pages as the list is scrolled. The expanded state of its items is preserved by id while
+     * their page is not loaded.
      *
      * @param items the new list of {@link ExpandableItemHolder} to use
      */
@@ -233,48 +627,188 @@ public class FancyAccordionView extends RecyclerView {
      *                    updates
      */
     private void setAdapterItems(final List<ExpandableItemHolder> items, final long updateToken) {
-        if (updateToken < mCurrentUpdateToken) {
-            Log.v("SampleActivity", String.format("Ignoring adapter update: %d < %d", updateToken, mCurrentUpdateToken));
+        final long latestUpdateToken = Math.max(mCurrentUpdateToken, mCalculatingUpdateToken);
+        if (updateToken < latestUpdateToken) {
+            Log.v(TAG, String.format("Ignoring adapter update: %d < %d", updateToken, latestUpdateToken));
             return;
         }
 
-        if (getItemAnimator().isRunning()) {
-            // RecyclerView is currently animating -> defer update.
-            getItemAnimator().isRunning(
-                    new RecyclerView.ItemAnimator.ItemAnimatorFinishedListener() {
-                        @Override
-                        public void onAnimationsFinished() {
-                            setAdapterItems(items, updateToken);
-                        }
-                    });
-        } else if (isComputingLayout()) {
-            // RecyclerView is currently computing a layout -> defer update.
-            post(new Runnable() {
-                @Override
-                public void run() {
-                    setAdapterItems(items, updateToken);
-                }
-            });
+        if (getItemAnimator().isRunning() || isComputingLayout()) {
+            // RecyclerView is currently animating or computing a layout -> defer update.
+            deferAdapterUpdate(items, null, updateToken);
+        } else if (mDiffExecutor != null && mContentComparator != null) {
+            discardPendingAdapterUpdate(updateToken);
+            calculateAdapterItemsUpdate(items, updateToken);
         } else {
+            discardPendingAdapterUpdate(updateToken);
             mCurrentUpdateToken = updateToken;
-            mItemAdapter.setItems(items);
+            if (mContentComparator != null) {
+                mItemAdapter.setItems(items, mContentComparator);
+            } else {
+                mItemAdapter.setItems(items);
+            }
+            onAdapterItemsChanged();
+        }
+    }
 
-            // Expand the correct alarm.
-            if (mExpandedItemId != Item.INVALID_ID) {
-                final ExpandableItemHolder aih = mItemAdapter.findItemById(mExpandedItemId);
-                if (aih != null) {
-                    aih.expand();
-                } else {
-                    mExpandedItemId = Item.INVALID_ID;
-                }
+    /**
+     * Calculates the update to the given items on the {@link #mDiffExecutor}, then applies it on
+     * the main thread unless a more recent update has been requested in the meantime.
+     *
+     * @param items       the new list of {@link ExpandableItemHolder} to use
+     * @param updateToken a monotonically increasing value used to preserve ordering of deferred
+     *                    updates
+     */
+    private void calculateAdapterItemsUpdate(final List<ExpandableItemHolder> items, final long updateToken) {
+        mCalculatingUpdateToken = updateToken;
+        final ItemAdapter.ItemsUpdate<ExpandableItemHolder> update =
+                mItemAdapter.newItemsUpdate(items, mContentComparator);
+        mDiffExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                update.calculate();
+                post(new Runnable() {
+                    @Override
+                    public void run() {
+                        applyAdapterItemsUpdate(update, updateToken);
+                    }
+                });
             }
+        });
+    }
+
+    /**
+     * Applies an update calculated by {@link #calculateAdapterItemsUpdate(List, long)}, deferring
+     * it until the current animation is finished or the layout is computed.
+     *
+     * @param update      the calculated update
+     * @param updateToken the token of the {@link #setAdapterItems(List, long)} call that
+     *                    requested the update
+     */
+    private void applyAdapterItemsUpdate(final ItemAdapter.ItemsUpdate<ExpandableItemHolder> update,
+                                         final long updateToken) {
+        if (updateToken < mCurrentUpdateToken || updateToken != mCalculatingUpdateToken) {
+            Log.v(TAG, String.format("Ignoring stale adapter update: %d", updateToken));
+            return;
+        }
+
+        if (getItemAnimator().isRunning() || isComputingLayout()) {
+            deferAdapterUpdate(null, update, updateToken);
+        } else {
+            discardPendingAdapterUpdate(updateToken);
+            mCurrentUpdateToken = updateToken;
+            mItemAdapter.applyItemsUpdate(update);
+            onAdapterItemsChanged();
+        }
+    }
 
-            // Scroll to the selected alarm.
-            if (mScrollToItemId != Item.INVALID_ID) {
-                scrollTo(mScrollToItemId);
-                setSmoothScrollStableId(Item.INVALID_ID);
+    /**
+     * Stores the update in the single pending update slot, replacing any older pending update,
+     * and makes sure the slot is flushed once the animations finish or the layout is computed.
+     *
+     * @param items       the new list of {@link ExpandableItemHolder} to use, or {@code null} if
+     *                    the update has already been calculated
+     * @param update      the calculated update, or {@code null} if not yet calculated
+     * @param updateToken a monotonically increasing value used to preserve ordering of deferred
+     *                    updates
+     */
+    private void deferAdapterUpdate(List<ExpandableItemHolder> items,
+                                    ItemAdapter.ItemsUpdate<ExpandableItemHolder> update,
+                                    long updateToken) {
+        if (mHasPendingUpdate) {
+            mCoalescedUpdateCount++;
+            if (updateToken < mPendingUpdateToken) {
+                // the pending update is more recent, keep it
+                return;
             }
         }
+        mHasPendingUpdate = true;
+        mPendingItems = items;
+        mPendingItemsUpdate = update;
+        mPendingUpdateToken = updateToken;
+
+        if (!mPendingUpdateScheduled) {
+            mPendingUpdateScheduled = true;
+            if (getItemAnimator().isRunning()) {
+                getItemAnimator().isRunning(mPendingUpdateFlusher);
+            } else {
+                post(mPendingUpdateFlusher);
+            }
+        }
+    }
+
+    /**
+     * Drops the pending update if it is superseded by the update being applied.
+     *
+     * @param updateToken the token of the update being applied
+     */
+    private void discardPendingAdapterUpdate(long updateToken) {
+        if (mHasPendingUpdate && mPendingUpdateToken <= updateToken) {
+            mCoalescedUpdateCount++;
+            clearPendingAdapterUpdate();
+        }
+    }
+
+    private void clearPendingAdapterUpdate() {
+        mHasPendingUpdate = false;
+        mPendingItems = null;
+        mPendingItemsUpdate = null;
+    }
+
+    /**
+     * Restores the expanded item and the scroll position after the adapter items are updated.
+     */
+    private void onAdapterItemsChanged() {
+        // Expand the correct alarms.
+        expandTrackedItems();
+
+        // Scroll to the selected alarm.
+        if (mScrollToItemId != Item.INVALID_ID) {
+            scrollTo(mScrollToItemId);
+            setSmoothScrollStableId(Item.INVALID_ID);
+        }
+    }
+
+    /**
+     * Sets the {@link ItemAdapter.ContentComparator} used to detect the changed items whenever
+     * {@link #setAdapterItems(List)} replaces the current items. When set, only the inserted,
+     * removed, moved and changed items are re-bound and animated, otherwise the whole dataset is
+     * invalidated.
+     *
+     * @param comparator the {@link ItemAdapter.ContentComparator} to use, e.g.
+     *                   {@link ItemAdapter#ITEM_EQUALS_COMPARATOR}, or {@code null} to always
+     *                   invalidate the whole dataset
+     */
+    public void setItemContentComparator(ItemAdapter.ContentComparator<? super ExpandableItemHolder> comparator) {
+        mContentComparator = comparator;
+    }
+
+    /**
+     * Sets the {@link Executor} used to calculate the updates requested by
+     * {@link #setAdapterItems(List)} off the main thread. Only the diff runs on the executor: the
+     * transfer of the instance state between old and new items, see
+     * {@link ItemAdapter.ItemHolder#onTransferInstanceState(ItemAdapter.ItemHolder)}, and the
+     * resulting notifications run on the main thread. Updates superseded by more recent ones
+     * while being calculated are discarded.
+     * <p/>
+     * Note: Only used when an {@link ItemAdapter.ContentComparator} is set via
+     * {@link #setItemContentComparator(ItemAdapter.ContentComparator)}. The items passed to
+     * {@link #setAdapterItems(List)} must not be modified while their update is calculated.
+     *
+     * @param executor the {@link Executor} to use, e.g. a single thread executor, or {@code null}
+     *                 to calculate the updates on the main thread
+     */
+    public void setDiffExecutor(@Nullable Executor executor) {
+        mDiffExecutor = executor;
+    }
+
+    /**
+     * @return the number of adapter updates that have been dropped because a more recent update
+     * was requested while they were waiting for the running animations to finish or for the
+     * layout to be computed
+     */
+    public int getCoalescedUpdateCount() {
+        return mCoalescedUpdateCount;
     }
 
     private void setSmoothScrollStableId(long stableId) {
@@ -285,7 +819,7 @@ public class FancyAccordionView extends RecyclerView {
      * @return the item identifier of the current expanded item or -1 if no item is expanded.
      */
     public long getExpandedItemId() {
-        return mExpandedItemId;
+        return mExpandedItemIds.isEmpty() ? Item.INVALID_ID : mExpandedItemIds.getNewest();
     }
 
     /**
@@ -294,34 +828,174 @@ public class FancyAccordionView extends RecyclerView {
      * @param expandedItemId the item identifier to expand the view related to it.
      */
     public void setExpandedItemId(long expandedItemId) {
-        mExpandedItemId = expandedItemId;
+        mExpandedItemIds.clear();
+        if (expandedItemId != Item.INVALID_ID) {
+            mExpandedItemIds.add(expandedItemId);
+        }
+    }
+
+    /**
+     * @return the identifiers of the expanded items, from the least to the most recently expanded
+     * one
+     */
+    public long[] getExpandedItemIds() {
+        return mExpandedItemIds.toArray();
+    }
+
+    /**
+     * Sets the identifiers of the items to expand, from the least to the most recently expanded
+     * one. Only the most recent {@link #getMaxExpandedItems()} identifiers are kept. Use this
+     * method before call {@link #setAdapterItems(List)}.
+     *
+     * @param expandedItemIds the item identifiers to expand the views related to them
+     */
+    public void setExpandedItemIds(long[] expandedItemIds) {
+        mExpandedItemIds.clear();
+        for (long expandedItemId : expandedItemIds) {
+            if (expandedItemId != Item.INVALID_ID) {
+                mExpandedItemIds.add(expandedItemId);
+            }
+        }
+        while (mExpandedItemIds.size() > mMaxExpandedItems) {
+            mExpandedItemIds.removeEldest();
+        }
     }
 
     /**
-     * @return the {@link ItemAdapter.ItemViewHolder.Factory} used to create new item view holders for collapsed state.
+     * @return the maximum number of items that can be expanded at the same time
      */
-    static ItemAdapter.ItemViewHolder.Factory getCollapsedViewHolderFactory() {
-        return getCollapsedViewHolderFactory(0);
+    public int getMaxExpandedItems() {
+        return mMaxExpandedItems;
     }
 
     /**
-     * @return the {@link ItemAdapter.ItemViewHolder.Factory} used to create new item view holders for collapsed state for the given viewType.
+     * Sets the maximum number of items that can be expanded at the same time, by default only one
+     * item can be expanded. When an item is expanded and the limit is reached, the least recently
+     * expanded item is collapsed.
+     *
+     * @param maxExpandedItems the maximum number of expanded items, at least 1
      */
-    static ItemAdapter.ItemViewHolder.Factory getCollapsedViewHolderFactory(int viewType) {
-        return sCollapsedViewHolderFactories.get(viewType);
+    public void setMaxExpandedItems(int maxExpandedItems) {
+        if (maxExpandedItems < 1) {
+            throw new IllegalArgumentException("maxExpandedItems must be at least 1: " + maxExpandedItems);
+        }
+        mMaxExpandedItems = maxExpandedItems;
+        collapseEldestExpandedItems(maxExpandedItems);
     }
 
     /**
-     * @return the {@link ItemAdapter.ItemViewHolder.Factory} used to create new item view holders for expanded state.
+     * Collapses the least recently expanded items until at most {@code maxExpandedItems} remain.
      */
-    static ItemAdapter.ItemViewHolder.Factory getExpandedViewHolderFactory() {
-        return getExpandedViewHolderFactory(0);
+    private void collapseEldestExpandedItems(int maxExpandedItems) {
+        while (mExpandedItemIds.size() > maxExpandedItems) {
+            final ExpandableItemHolder aih = mItemAdapter.findItemById(mExpandedItemIds.removeEldest());
+            if (aih != null) {
+                aih.collapse();
+            }
+        }
     }
 
     /**
-     * @return the {@link ItemAdapter.ItemViewHolder.Factory} used to create new item view holders for expanded state for the given viewType.
+     * Expands the items whose ids are tracked, forgetting the ids no longer in the adapter. The
+     * ids of the items of a {@link PagedItemList} are kept, as their page may just be not loaded.
      */
-    static ItemAdapter.ItemViewHolder.Factory getExpandedViewHolderFactory(int viewType) {
-        return sExpandedViewHolderFactories.get(viewType);
+    private void expandTrackedItems() {
+        final boolean paged = mItemAdapter.isPaged();
+        for (int i = mExpandedItemIds.size() - 1; i >= 0; i--) {
+            final ExpandableItemHolder aih = mItemAdapter.findItemById(mExpandedItemIds.get(i));
+            if (aih != null) {
+                aih.expand();
+            } else if (!paged) {
+                mExpandedItemIds.removeAt(i);
+            }
+        }
+    }
+
+    @Override
+    protected Parcelable onSaveInstanceState() {
+        final SavedState savedState = new SavedState(super.onSaveInstanceState());
+        savedState.mExpandedItemIds = mExpandedItemIds.toArray();
+        return savedState;
+    }
+
+    @Override
+    protected void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof SavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
+        }
+
+        final SavedState savedState = (SavedState) state;
+        super.onRestoreInstanceState(savedState.getSuperState());
+        setExpandedItemIds(savedState.mExpandedItemIds);
+        expandTrackedItems();
+    }
+
+    private final class PendingUpdateFlusher
+            implements Runnable, RecyclerView.ItemAnimator.ItemAnimatorFinishedListener {
+
+        @Override
+        public void onAnimationsFinished() {
+            run();
+        }
+
+        @Override
+        public void run() {
+            mPendingUpdateScheduled = false;
+            if (!mHasPendingUpdate) {
+                return;
+            }
+
+            final List<ExpandableItemHolder> items = mPendingItems;
+            final ItemAdapter.ItemsUpdate<ExpandableItemHolder> update = mPendingItemsUpdate;
+            final long updateToken = mPendingUpdateToken;
+            clearPendingAdapterUpdate();
+
+            if (update != null) {
+                applyAdapterItemsUpdate(update, updateToken);
+            } else {
+                setAdapterItems(items, updateToken);
+            }
+        }
+    }
+
+    /**
+     * State of {@link FancyAccordionView} holding the ids of the expanded items.
+     */
+    static class SavedState extends AbsSavedState {
+
+        long[] mExpandedItemIds;
+
+        SavedState(Parcelable superState) {
+            super(superState);
+        }
+
+        /**
+         * The state of {@link RecyclerView} is read with the class loader of the app, since it is
+         * not a framework class.
+         */
+        SavedState(Parcel in, ClassLoader loader) {
+            super(in, loader != null ? loader : RecyclerView.class.getClassLoader());
+            mExpandedItemIds = in.createLongArray();
+        }
+
+        @Override
+        public void writeToParcel(Parcel dest, int flags) {
+            super.writeToParcel(dest, flags);
+            dest.writeLongArray(mExpandedItemIds);
+        }
+
+        public static final Parcelable.Creator<SavedState> CREATOR = ParcelableCompat.newCreator(
+                new ParcelableCompatCreatorCallbacks<SavedState>() {
+                    @Override
+                    public SavedState createFromParcel(Parcel in, ClassLoader loader) {
+                        return new SavedState(in, loader);
+                    }
+
+                    @Override
+                    public SavedState[] newArray(int size) {
+                        return new SavedState[size];
+                    }
+                });
     }
-}
\ No newline at end of file
+}
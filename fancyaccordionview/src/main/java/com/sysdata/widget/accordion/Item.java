@@ -24,4 +24,14 @@ public abstract class Item {
      * @return globally unique id corresponding to the item.
      */
     public abstract int getUniqueId();
+
+    /**
+     * Override to use ids spanning the whole {@code long} range, e.g. database keys.
+     *
+     * @return globally unique id corresponding to the item, used as its
+     * {@link ItemAdapter.ItemHolder#itemId}. Defaults to {@link #getUniqueId()}.
+     */
+    public long getItemId() {
+        return getUniqueId();
+    }
 }
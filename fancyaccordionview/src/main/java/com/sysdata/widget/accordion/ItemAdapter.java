@@ -20,11 +20,15 @@ import android.os.Bundle;
 import android.support.annotation.IntDef;
 import android.support.annotation.LayoutRes;
 import android.support.annotation.NonNull;
+import android.support.v7.util.DiffUtil;
 import android.support.v7.widget.RecyclerView;
 import android.util.SparseArray;
 import android.view.View;
 import android.view.ViewGroup;
 
+import com.sysdata.widget.accordion.collections.LongArrayList;
+import com.sysdata.widget.accordion.collections.LongIntHashMap;
+
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.util.ArrayList;
@@ -50,7 +54,22 @@ public class ItemAdapter<T extends ItemAdapter.ItemHolder>
             if (mOnItemChangedListener != null) {
                 mOnItemChangedListener.onItemChanged(itemHolder);
             }
-            final int position = mItemHolders.indexOf(itemHolder);
+            if (!itemHolder.isNotifyingExpansionChange()) {
+                // the expanded and collapsed heights are cached separately
+                mHeightCache.invalidate(itemHolder.itemId);
+            }
+            if (mChangeBatcher != null) {
+                // expanding and collapsing are notified right away, so that a tap is not
+                // answered a frame late
+                if (mChangeBatcher.isBatchingChanges()
+                        && !itemHolder.isNotifyingExpansionChange()) {
+                    mChangeBatcher.addChange(itemHolder);
+                    return;
+                }
+                // the full re-bind supersedes the payloads waiting for the next frame
+                mChangeBatcher.remove(itemHolder);
+            }
+            final int position = indexOfItemHolder(itemHolder);
             if (position != RecyclerView.NO_POSITION) {
                 notifyItemChanged(position);
             }
@@ -61,13 +80,56 @@ public class ItemAdapter<T extends ItemAdapter.ItemHolder>
             if (mOnItemChangedListener != null) {
                 mOnItemChangedListener.onItemChanged(itemHolder, payload);
             }
-            final int position = mItemHolders.indexOf(itemHolder);
+            if (payload != ExpansionChanged.INSTANCE) {
+                // the expanded and collapsed heights are cached separately
+                mHeightCache.invalidate(itemHolder.itemId);
+            }
+            if (mChangeBatcher != null && mChangeBatcher.isBatchingPayloads()
+                    && payload != ExpansionChanged.INSTANCE) {
+                mChangeBatcher.addPayload(itemHolder, payload);
+                return;
+            }
+            final int position = indexOfItemHolder(itemHolder);
             if (position != RecyclerView.NO_POSITION) {
                 notifyItemChanged(position, payload);
             }
         }
     };
 
+    /**
+     * Tracks the item holders loaded and dropped by a {@link PagedItemList} set as dataset.
+     */
+    private final PagedItemList.Callback<T> mPageCallback = new PagedItemList.Callback<T>() {
+        @Override
+        public void onPageLoaded(int startPosition, List<T> itemHolders) {
+            for (int i = 0, size = itemHolders.size(); i < size; i++) {
+                final T itemHolder = itemHolders.get(i);
+                itemHolder.addOnItemChangedListener(mItemChangedNotifier);
+                onItemHolderAttached(itemHolder);
+            }
+        }
+
+        @Override
+        public void onPageReplaced(int startPosition, int itemCount, boolean placeholders) {
+            if (placeholders) {
+                // the payload spares the cross-fade of a full change, the placeholders are
+                // simply replaced by the item views
+                notifyItemRangeChanged(startPosition, itemCount, PlaceholderLoaded.INSTANCE);
+            } else {
+                notifyItemRangeChanged(startPosition, itemCount);
+            }
+        }
+
+        @Override
+        public void onPageDropped(int startPosition, List<T> itemHolders) {
+            for (int i = 0, size = itemHolders.size(); i < size; i++) {
+                final T itemHolder = itemHolders.get(i);
+                itemHolder.removeOnItemChangedListener(mItemChangedNotifier);
+                onItemHolderDetached(itemHolder);
+            }
+        }
+    };
+
     /**
      * Invokes the {@link OnItemClickedListener} in {@link #mListenersByViewType} corresponding
      * to {@link ItemViewHolder#getItemViewType()}
@@ -102,6 +164,34 @@ public class ItemAdapter<T extends ItemAdapter.ItemHolder>
      */
     private List<T> mItemHolders;
 
+    /**
+     * Index of the positions of {@link #mItemHolders} by {@link ItemHolder#itemId}.
+     */
+    private final ItemPositionIndex mItemPositionIndex = new ItemPositionIndex();
+
+    /**
+     * Batches the changes notified within a frame, {@code null} unless payload or change batching
+     * is enabled.
+     */
+    private ItemChangeBatcher mChangeBatcher;
+
+    /**
+     * Incremented on every change of {@link #mItemHolders}, used to detect stale
+     * {@link ItemsUpdate}s.
+     */
+    private int mItemsVersion;
+
+    /**
+     * Measured heights of the item views,
+     * see {@link #getCachedItemHeight(long, int, boolean, int)}.
+     */
+    private final ItemHeightCache mHeightCache = new ItemHeightCache();
+
+    /**
+     * The {@link RecyclerView} this adapter is attached to, if any.
+     */
+    private RecyclerView mRecyclerView;
+
     /**
      * Convenience for calling {@link #setHasStableIds(boolean)} with {@code true}.
      *
@@ -138,12 +228,103 @@ public class ItemAdapter<T extends ItemAdapter.ItemHolder>
         return mItemHolders;
     }
 
+    /**
+     * Enables or disables the batching of the in-place changes notified via
+     * {@link ItemHolder#notifyItemChanged(Object)}. When enabled, the payloads notified for the
+     * same item holder within a frame are merged and dispatched as a single change on the next
+     * {@link android.view.Choreographer} frame, so that item holders updated many times per
+     * second (e.g. live prices or counters) are re-bound at most once per frame.
+     * <p/>
+     * The {@link OnItemChangedListener} set via
+     * {@link #setOnItemChangedListener(OnItemChangedListener)} is still invoked for every change,
+     * and {@link ExpansionChanged} payloads are never delayed. Disabling the batching dispatches
+     * the pending changes right away.
+     *
+     * @param enabled {@code true} to merge the payloads notified within a frame
+     * @return this object, allowing calls to methods in this class to be chained
+     */
+    public ItemAdapter setPayloadBatchingEnabled(boolean enabled) {
+        setChangeBatching(enabled, isChangeBatchingEnabled());
+        return this;
+    }
+
+    /**
+     * @return {@code true} if the payloads notified within a frame are merged
+     * @see #setPayloadBatchingEnabled(boolean)
+     */
+    public boolean isPayloadBatchingEnabled() {
+        return mChangeBatcher != null && mChangeBatcher.isBatchingPayloads();
+    }
+
+    /**
+     * Enables or disables the batching of the changes notified via
+     * {@link ItemHolder#notifyItemChanged()}. When enabled, the positions of the changed items
+     * are collected during the frame and dispatched on the next
+     * {@link android.view.Choreographer} frame as runs of
+     * {@link #notifyItemRangeChanged(int, int)}, so that a model update touching hundreds of item
+     * holders results in a few adapter update operations instead of one per item.
+     * <p/>
+     * The pending changes are dispatched before any structural change of the dataset, and right
+     * away when the batching is disabled. The {@link OnItemChangedListener} set via
+     * {@link #setOnItemChangedListener(OnItemChangedListener)} is still invoked for every change.
+     *
+     * @param enabled {@code true} to coalesce the changes notified within a frame
+     * @return this object, allowing calls to methods in this class to be chained
+     */
+    public ItemAdapter setChangeBatchingEnabled(boolean enabled) {
+        setChangeBatching(isPayloadBatchingEnabled(), enabled);
+        return this;
+    }
+
+    /**
+     * @return {@code true} if the changes notified within a frame are coalesced
+     * @see #setChangeBatchingEnabled(boolean)
+     */
+    public boolean isChangeBatchingEnabled() {
+        return mChangeBatcher != null && mChangeBatcher.isBatchingChanges();
+    }
+
+    /**
+     * @return the number of change notifications merged into other ones since the payload or
+     * change batching has been enabled
+     */
+    public int getMergedChangeCount() {
+        return mChangeBatcher != null ? mChangeBatcher.getMergedCount() : 0;
+    }
+
+    private void setChangeBatching(boolean payloads, boolean changes) {
+        if (mChangeBatcher != null) {
+            // dispatch what has been batched so far under the previous modes
+            mChangeBatcher.flush();
+        }
+        if (!payloads && !changes) {
+            mChangeBatcher = null;
+            return;
+        }
+        if (mChangeBatcher == null) {
+            mChangeBatcher = new ItemChangeBatcher(this);
+        }
+        mChangeBatcher.setBatchingPayloads(payloads);
+        mChangeBatcher.setBatchingChanges(changes);
+    }
+
+    /**
+     * Dispatches the batched changes, whose positions would be invalidated by a structural change
+     * of the dataset.
+     */
+    private void flushBatchedChanges() {
+        if (mChangeBatcher != null) {
+            mChangeBatcher.flush();
+        }
+    }
+
     /**
      * Sets the list of item holders to serve as the dataset for this adapter and invokes
      * {@link #notifyDataSetChanged()} to update the UI.
      * <p/>
      * If {@link #hasStableIds()} returns {@code true}, then the instance state will preserved
-     * between new and old holders that have matching {@link ItemHolder#itemId} values.
+     * between new and old holders that have matching {@link ItemHolder#itemId} values, unless
+     * either list is a {@link PagedItemList}.
      *
      * @param itemHolders the new list of item holders
      * @return this object, allowing calls to methods in this class to be chained
@@ -151,48 +332,237 @@ public class ItemAdapter<T extends ItemAdapter.ItemHolder>
     public ItemAdapter setItems(List<T> itemHolders) {
         final List<T> oldItemHolders = mItemHolders;
         if (oldItemHolders != itemHolders) {
-            if (oldItemHolders != null) {
-                // remove the item change listener from the old item holders
-                for (T oldItemHolder : oldItemHolders) {
-                    oldItemHolder.removeOnItemChangedListener(mItemChangedNotifier);
-                }
+            flushBatchedChanges();
+            // the contents of the items with matching ids are unknown
+            mHeightCache.clear();
+            if (oldItemHolders != null && itemHolders != null && hasStableIds()
+                    && !isPaged(oldItemHolders) && !isPaged(itemHolders)) {
+                transferInstanceState(oldItemHolders, itemHolders);
             }
 
-            if (oldItemHolders != null && itemHolders != null && hasStableIds()) {
-                // transfer instance state from old to new item holders based on item id,
-                // we use a simple O(N^2) implementation since we assume the number of items is
-                // relatively small and generating a temporary map would be more expensive
-                final Bundle bundle = new Bundle();
-                for (ItemHolder newItemHolder : itemHolders) {
-                    for (ItemHolder oldItemHolder : oldItemHolders) {
-                        if (newItemHolder.itemId == oldItemHolder.itemId
-                                && newItemHolder != oldItemHolder) {
-                            // clear any existing state from the bundle
-                            bundle.clear();
-
-                            // transfer instance state from old to new item holder
-                            oldItemHolder.onSaveInstanceState(bundle);
-                            newItemHolder.onRestoreInstanceState(bundle);
-
-                            break;
-                        }
-                    }
-                }
+            // finally update the current list of item holders and inform the RV to update the UI
+            swapItems(itemHolders);
+            notifyDataSetChanged();
+        }
+
+        return this;
+    }
+
+    /**
+     * Sets the list of item holders to serve as the dataset for this adapter, computing the
+     * minimal set of insertions, removals, moves and changes between the current and the new list
+     * so that only the affected items are re-bound and animated.
+     * <p/>
+     * Items are matched by {@link ItemHolder#itemId}, hence the diff is computed only if
+     * {@link #hasStableIds()} returns {@code true} and neither list is a {@link PagedItemList},
+     * otherwise this method behaves like {@link #setItems(List)}. The instance state is
+     * preserved between new and old holders that have matching ids.
+     *
+     * @param itemHolders the new list of item holders
+     * @param comparator  the {@link ContentComparator} used to detect the changed items, e.g.
+     *                    {@link #ITEM_EQUALS_COMPARATOR}
+     * @return this object, allowing calls to methods in this class to be chained
+     */
+    public ItemAdapter setItems(List<T> itemHolders, @NonNull ContentComparator<? super T> comparator) {
+        final List<T> oldItemHolders = mItemHolders;
+        if (oldItemHolders == null || itemHolders == null || !hasStableIds()
+                || isPaged(oldItemHolders) || isPaged(itemHolders)) {
+            return setItems(itemHolders);
+        }
+
+        if (oldItemHolders != itemHolders) {
+            final LongArrayList changedIds = new LongArrayList();
+            final DiffUtil.DiffResult diffResult =
+                    calculateDiff(oldItemHolders, itemHolders, comparator, changedIds);
+
+            flushBatchedChanges();
+            invalidateCachedItemHeights(changedIds);
+            swapItems(itemHolders);
+            diffResult.dispatchUpdatesTo(this);
+        }
+
+        return this;
+    }
+
+    /**
+     * Creates an {@link ItemsUpdate} that replaces the current list of item holders like
+     * {@link #setItems(List, ContentComparator)} does, but whose expensive part can be run on a
+     * worker thread via {@link ItemsUpdate#calculate()} before being applied on the main thread
+     * via {@link #applyItemsUpdate(ItemsUpdate)}.
+     * <p/>
+     * Note: Must be called on the main thread, the update is calculated against a snapshot of the
+     * current list of item holders.
+     *
+     * @param itemHolders the new list of item holders
+     * @param comparator  the {@link ContentComparator} used to detect the changed items, which is
+     *                    invoked off the main thread and must only read the immutable
+     *                    {@link ItemHolder#item}s
+     * @return the new, not yet calculated, update
+     */
+    public ItemsUpdate<T> newItemsUpdate(List<T> itemHolders,
+                                         @NonNull ContentComparator<? super T> comparator) {
+        final List<T> oldItemHolders = mItemHolders != null && itemHolders != null
+                && mItemHolders != itemHolders && hasStableIds()
+                && !isPaged(mItemHolders) && !isPaged(itemHolders)
+                ? new ArrayList<>(mItemHolders) : null;
+        return new ItemsUpdate<>(this, oldItemHolders, itemHolders, comparator, mItemsVersion);
+    }
+
+    /**
+     * Applies an update created by {@link #newItemsUpdate(List, ContentComparator)}. If the
+     * update has not been calculated yet, or the item holders of this adapter changed since it was
+     * created, then the update is calculated again on the calling thread.
+     * <p/>
+     * Note: Must be called on the main thread.
+     *
+     * @param update the update to apply
+     * @return this object, allowing calls to methods in this class to be chained
+     */
+    public ItemAdapter applyItemsUpdate(@NonNull ItemsUpdate<T> update) {
+        if (update.mNewItemHolders == mItemHolders) {
+            return this;
+        }
+        if (update.mVersion != mItemsVersion || update.mOldItemHolders == null
+                || update.mDiffResult == null) {
+            return setItems(update.mNewItemHolders, update.mComparator);
+        }
+
+        // the instance state and the view types are read on the main thread, so that the items
+        // expanded or collapsed while the update was calculated keep their current state
+        final List<T> oldItemHolders = mItemHolders;
+        transferInstanceState(oldItemHolders, update.mNewItemHolders);
+        final LongIntHashMap oldViewTypesById = new LongIntHashMap(oldItemHolders.size());
+        for (int i = 0, size = oldItemHolders.size(); i < size; i++) {
+            final T oldItemHolder = oldItemHolders.get(i);
+            if (!oldViewTypesById.containsKey(oldItemHolder.itemId)) {
+                oldViewTypesById.put(oldItemHolder.itemId, resolveItemViewType(oldItemHolder));
             }
+        }
 
-            if (itemHolders != null) {
-                // add the item change listener to the new item holders
-                for (ItemHolder newItemHolder : itemHolders) {
-                    newItemHolder.addOnItemChangedListener(mItemChangedNotifier);
-                }
+        flushBatchedChanges();
+        invalidateCachedItemHeights(update.mChangedIds);
+        swapItems(update.mNewItemHolders);
+        update.mDiffResult.dispatchUpdatesTo(this);
+
+        // the diff did not compare the view types, the items whose view type changed require a
+        // new view holder to be bound
+        final List<T> newItemHolders = mItemHolders;
+        for (int position = 0, size = newItemHolders.size(); position < size; position++) {
+            final T newItemHolder = newItemHolders.get(position);
+            final long itemId = newItemHolder.itemId;
+            if (oldViewTypesById.containsKey(itemId)
+                    && oldViewTypesById.get(itemId, 0) != resolveItemViewType(newItemHolder)) {
+                notifyItemChanged(position);
             }
+        }
+        return this;
+    }
 
-            // finally update the current list of item holders and inform the RV to update the UI
-            mItemHolders = itemHolders;
-            notifyDataSetChanged();
+    /**
+     * Transfers the instance state from the old to the new item holders and computes the
+     * differences between the two lists, collecting the ids of the changed items into
+     * {@code changedIds}.
+     */
+    private DiffUtil.DiffResult calculateDiff(List<T> oldItemHolders, List<T> newItemHolders,
+                                              ContentComparator<? super T> comparator,
+                                              LongArrayList changedIds) {
+        transferInstanceState(oldItemHolders, newItemHolders);
+        return DiffUtil.calculateDiff(new ItemHolderDiffCallback(
+                oldItemHolders, newItemHolders, comparator, changedIds, true));
+    }
+
+    private void invalidateCachedItemHeights(LongArrayList itemIds) {
+        for (int i = 0, size = itemIds.size(); i < size; i++) {
+            mHeightCache.invalidate(itemIds.get(i));
         }
+    }
 
-        return this;
+    /**
+     * Replaces the current list of item holders, moving the item change listener from the old to
+     * the new item holders.
+     */
+    private void swapItems(List<T> itemHolders) {
+        final List<T> oldItemHolders = mItemHolders;
+        if (isPaged(oldItemHolders)) {
+            // only the item holders of the loaded pages have been attached
+            ((PagedItemList<T>) oldItemHolders).detach();
+        } else if (oldItemHolders != null) {
+            // remove the item change listener from the old item holders
+            for (T oldItemHolder : oldItemHolders) {
+                oldItemHolder.removeOnItemChangedListener(mItemChangedNotifier);
+                onItemHolderDetached(oldItemHolder);
+            }
+        }
+
+        if (isPaged(itemHolders)) {
+            // the item holders are attached as their pages are loaded
+            ((PagedItemList<T>) itemHolders).attach(mPageCallback);
+        } else if (itemHolders != null) {
+            // add the item change listener to the new item holders
+            for (T newItemHolder : itemHolders) {
+                newItemHolder.addOnItemChangedListener(mItemChangedNotifier);
+                onItemHolderAttached(newItemHolder);
+            }
+        }
+
+        mItemHolders = itemHolders;
+        mItemPositionIndex.reset(isPaged(itemHolders) ? null : itemHolders);
+        mItemsVersion++;
+    }
+
+    private static boolean isPaged(List<?> itemHolders) {
+        return itemHolders instanceof PagedItemList;
+    }
+
+    /**
+     * @return {@code true} if the dataset is a {@link PagedItemList}, whose item holders are not
+     * all loaded
+     */
+    boolean isPaged() {
+        return isPaged(mItemHolders);
+    }
+
+    /**
+     * Transfers instance state from old to new item holders based on item id.
+     */
+    private static void transferInstanceState(List<? extends ItemHolder> oldItemHolders,
+                                              List<? extends ItemHolder> newItemHolders) {
+        // index the old item holders by id in a primitive map so the transfer takes linear time,
+        // keeping the first occurrence of each id
+        final int oldSize = oldItemHolders.size();
+        final LongIntHashMap oldPositionsById = new LongIntHashMap(oldSize);
+        for (int position = 0; position < oldSize; position++) {
+            final ItemHolder oldItemHolder = oldItemHolders.get(position);
+            if (oldItemHolder.hasTransferableState()
+                    && !oldPositionsById.containsKey(oldItemHolder.itemId)) {
+                oldPositionsById.put(oldItemHolder.itemId, position);
+            }
+        }
+
+        Bundle bundle = null;
+        for (ItemHolder newItemHolder : newItemHolders) {
+            final int oldPosition = oldPositionsById.get(newItemHolder.itemId, RecyclerView.NO_POSITION);
+            if (oldPosition == RecyclerView.NO_POSITION) {
+                continue;
+            }
+
+            final ItemHolder oldItemHolder = oldItemHolders.get(oldPosition);
+            if (oldItemHolder == newItemHolder
+                    || newItemHolder.onTransferInstanceState(oldItemHolder)) {
+                continue;
+            }
+
+            if (bundle == null) {
+                bundle = new Bundle();
+            } else {
+                // clear any existing state from the bundle
+                bundle.clear();
+            }
+
+            // transfer instance state from old to new item holder
+            oldItemHolder.onSaveInstanceState(bundle);
+            newItemHolder.onRestoreInstanceState(bundle);
+        }
     }
 
     /**
@@ -205,8 +575,12 @@ public class ItemAdapter<T extends ItemAdapter.ItemHolder>
      */
     public ItemAdapter addItem(int position, @NonNull T itemHolder) {
         itemHolder.addOnItemChangedListener(mItemChangedNotifier);
+        onItemHolderAttached(itemHolder);
+        flushBatchedChanges();
         position = Math.min(position, mItemHolders.size());
         mItemHolders.add(position, itemHolder);
+        mItemPositionIndex.onItemInserted(position);
+        mItemsVersion++;
         notifyItemInserted(position);
         return this;
     }
@@ -220,10 +594,15 @@ public class ItemAdapter<T extends ItemAdapter.ItemHolder>
      * @return this object, allowing calls to methods in this class to be chained
      */
     public ItemAdapter removeItem(@NonNull T itemHolder) {
-        final int index = mItemHolders.indexOf(itemHolder);
+        final int index = mItemPositionIndex.indexOf(itemHolder);
         if (index >= 0) {
+            flushBatchedChanges();
             itemHolder = mItemHolders.remove(index);
+            mItemPositionIndex.onItemRemoved(index, itemHolder.itemId);
+            mItemsVersion++;
+            mHeightCache.invalidate(itemHolder.itemId);
             itemHolder.removeOnItemChangedListener(mItemChangedNotifier);
+            onItemHolderDetached(itemHolder);
             notifyItemRemoved(index);
         }
         return this;
@@ -243,41 +622,269 @@ public class ItemAdapter<T extends ItemAdapter.ItemHolder>
 
     @Override
     public long getItemId(int position) {
-        return hasStableIds() ? mItemHolders.get(position).itemId : NO_ID;
+        if (!hasStableIds()) {
+            return NO_ID;
+        }
+        if (isPlaceholder(position)) {
+            return ((PagedItemList<T>) mItemHolders).getPlaceholderId(position);
+        }
+        return mItemHolders.get(position).itemId;
     }
 
+    /**
+     * @param position the adapter position of the item
+     * @return {@code true} if the dataset is a {@link PagedItemList} and the item is shown as a
+     * placeholder, since its page is not loaded yet
+     */
+    boolean isPlaceholder(int position) {
+        return isPaged(mItemHolders) && ((PagedItemList<T>) mItemHolders).isPlaceholder(position);
+    }
+
+    /**
+     * @param itemHolder the item holder to look for
+     * @return the adapter position of the item holder, or {@link RecyclerView#NO_POSITION} if
+     * the adapter does not contain it
+     */
+    int indexOfItemHolder(ItemHolder<?> itemHolder) {
+        return isPaged(mItemHolders)
+                ? ((PagedItemList<T>) mItemHolders).indexOfLoaded(itemHolder)
+                : mItemPositionIndex.indexOf(itemHolder);
+    }
+
+    /**
+     * @param id the {@link ItemHolder#itemId} to look for
+     * @return the item holder with the given id, or {@code null} if the adapter does not contain
+     * one, or if its page is not loaded when the dataset is a {@link PagedItemList}
+     */
     public T findItemById(long id) {
-        for (T holder : mItemHolders) {
-            if (holder.itemId == id) {
-                return holder;
-            }
+        if (isPaged(mItemHolders)) {
+            final PagedItemList<T> pagedItemHolders = (PagedItemList<T>) mItemHolders;
+            return pagedItemHolders.peek(pagedItemHolders.indexOfLoadedId(id));
         }
-        return null;
+        final int position = mItemPositionIndex.indexOfId(id);
+        return position != RecyclerView.NO_POSITION ? mItemHolders.get(position) : null;
+    }
+
+    /**
+     * @param id the {@link ItemHolder#itemId} to look for
+     * @return the adapter position of the item holder with the given id, or
+     * {@link RecyclerView#NO_POSITION} if the adapter does not contain one, or if its page is not
+     * loaded when the dataset is a {@link PagedItemList}
+     */
+    public int findItemPositionById(long id) {
+        return isPaged(mItemHolders)
+                ? ((PagedItemList<T>) mItemHolders).indexOfLoadedId(id)
+                : mItemPositionIndex.indexOfId(id);
     }
 
     @Override
     public int getItemViewType(int position) {
-        return mItemHolders.get(position).getItemViewType();
+        if (isPlaceholder(position)) {
+            return PlaceholderViewHolder.VIEW_TYPE;
+        }
+        return resolveItemViewType(mItemHolders.get(position));
+    }
+
+    /**
+     * Resolves the view type of an item holder of this adapter. Subclassers may override to
+     * resolve view types through state owned by the adapter.
+     *
+     * @param itemHolder the item holder
+     * @return the unique identifier for the view that should be used to represent the item
+     */
+    protected int resolveItemViewType(T itemHolder) {
+        return itemHolder.getItemViewType();
+    }
+
+    /**
+     * Called when an item holder becomes part of the dataset of this adapter.
+     *
+     * @param itemHolder the attached item holder
+     */
+    protected void onItemHolderAttached(T itemHolder) {
+        // for subclassers
+    }
+
+    /**
+     * Called when an item holder is no longer part of the dataset of this adapter.
+     *
+     * @param itemHolder the detached item holder
+     */
+    protected void onItemHolderDetached(T itemHolder) {
+        // for subclassers
+    }
+
+    /**
+     * Called by {@link #onCreateViewHolder(ViewGroup, int)} to retrieve an item view inflated
+     * ahead of time, when the factory of the view type is an
+     * {@link ItemViewHolder.InflatedViewFactory}.
+     *
+     * @param parent   the {@code ViewGroup} that the item view will be attached
+     * @param viewType the unique id of the item view to create
+     * @return an item view inflated from the layout of the view type, or {@code null} to let the
+     * factory inflate it
+     */
+    protected View obtainPreinflatedItemView(ViewGroup parent, int viewType) {
+        return null;
+    }
+
+    /**
+     * @param viewType the unique id of the item view
+     * @return {@code true} if the factory of the view type accepts item views inflated ahead of
+     * time
+     */
+    boolean acceptsPreinflatedItemViews(int viewType) {
+        return mFactoriesByViewType.get(viewType) instanceof ItemViewHolder.InflatedViewFactory;
     }
 
     @Override
     public ItemViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
         final ItemViewHolder.Factory factory = mFactoriesByViewType.get(viewType);
+        if (factory instanceof ItemViewHolder.InflatedViewFactory) {
+            final View itemView = obtainPreinflatedItemView(parent, viewType);
+            if (itemView != null) {
+                return ((ItemViewHolder.InflatedViewFactory) factory).createViewHolder(itemView, viewType);
+            }
+        }
         if (factory != null) {
             return factory.createViewHolder(parent, viewType);
         }
+        if (viewType == PlaceholderViewHolder.VIEW_TYPE) {
+            return PlaceholderViewHolder.create(parent);
+        }
         throw new IllegalArgumentException("Unsupported view type: " + viewType);
     }
 
     @Override
     @SuppressWarnings("unchecked")
     public void onBindViewHolder(ItemViewHolder viewHolder, int position) {
+        if (isPaged(mItemHolders)) {
+            final PagedItemList<T> pagedItemHolders = (PagedItemList<T>) mItemHolders;
+            if (viewHolder instanceof PlaceholderViewHolder) {
+                // placeholders are not bound to any item holder, their page is loaded instead
+                pagedItemHolders.onPlaceholderBound(position);
+                pagedItemHolders.loadAround(position);
+                return;
+            }
+            pagedItemHolders.loadAround(position);
+        }
         // suppress any unchecked warnings since it is up to the subclass to guarantee
         // compatibility of their view holders with the item holder at the corresponding position
+        viewHolder.mAdapter = this;
+        viewHolder.mItemsVersion = mItemsVersion;
         viewHolder.bindItemView(mItemHolders.get(position));
         viewHolder.setOnItemClickedListener(mOnItemClickedListener);
     }
 
+    /**
+     * Dispatches the payloads of an in-place change to
+     * {@link ItemViewHolder#bindItemView(ItemHolder, List)}, so that the view holder can update
+     * only the affected views. A full bind is performed when there are no payloads or the view
+     * holder is bound to a different item holder.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void onBindViewHolder(ItemViewHolder viewHolder, int position, List<Object> payloads) {
+        if (payloads.isEmpty() || viewHolder instanceof PlaceholderViewHolder) {
+            onBindViewHolder(viewHolder, position);
+            return;
+        }
+        final T itemHolder = mItemHolders.get(position);
+        if (viewHolder.getItemHolder() != itemHolder) {
+            onBindViewHolder(viewHolder, position);
+            return;
+        }
+        viewHolder.bindItemView(itemHolder, payloads);
+    }
+
+    /**
+     * Returns the height last measured for an item view, so that the view holder of an item shown
+     * again, e.g. expanded a second time, can be sized before its content is bound.
+     * <p/>
+     * Heights are recorded by {@link AccordionLinearLayoutManager} when {@link #hasStableIds()}
+     * returns {@code true}, and forgotten when the item changes, is removed or the whole dataset
+     * is replaced. Expanding and collapsing an item keeps its heights, which are recorded for
+     * each state.
+     *
+     * @param itemId   the {@link ItemHolder#itemId} of the item
+     * @param viewType the view type the item was shown with
+     * @param expanded whether the item was shown expanded
+     * @param width    the width of the list the item was shown in
+     * @return the measured height in pixels, or {@code -1} if unknown
+     */
+    public int getCachedItemHeight(long itemId, int viewType, boolean expanded, int width) {
+        return mHeightCache.get(itemId, viewType, expanded, width);
+    }
+
+    /**
+     * Convenience for calling {@link #getCachedItemHeight(long, int, boolean, int)} with the width
+     * of the {@link RecyclerView} this adapter is attached to.
+     *
+     * @return the measured height in pixels, or {@code -1} if unknown or the adapter is detached
+     */
+    public int getCachedItemHeight(long itemId, int viewType, boolean expanded) {
+        return mRecyclerView != null
+                ? mHeightCache.get(itemId, viewType, expanded, mRecyclerView.getWidth())
+                : ItemHeightCache.UNKNOWN_HEIGHT;
+    }
+
+    /**
+     * Forgets all the measured heights, e.g. after a configuration change affecting the size of
+     * the text.
+     */
+    public void clearCachedItemHeights() {
+        mHeightCache.clear();
+    }
+
+    /**
+     * Called by {@link AccordionLinearLayoutManager} when an item view has been measured, with
+     * the content of the item holder it is bound to.
+     */
+    void onItemViewMeasured(RecyclerView.ViewHolder viewHolder, int width, int height) {
+        if (!(viewHolder instanceof ItemViewHolder)
+                || viewHolder.getItemViewType() == PlaceholderViewHolder.VIEW_TYPE) {
+            return;
+        }
+        final ItemHolder itemHolder = ((ItemViewHolder<?>) viewHolder).getItemHolder();
+        if (itemHolder != null && itemHolder.itemId != NO_ID) {
+            mHeightCache.put(itemHolder.itemId, viewHolder.getItemViewType(),
+                    isItemExpanded(itemHolder), width, height);
+        }
+    }
+
+    /**
+     * @return {@code true} if the item holder is an expanded {@link ExpandableItemHolder}
+     */
+    static boolean isItemExpanded(ItemHolder itemHolder) {
+        return itemHolder instanceof ExpandableItemHolder
+                && ((ExpandableItemHolder) itemHolder).isExpanded();
+    }
+
+    /**
+     * @return the {@link RecyclerView} this adapter is attached to, or {@code null}
+     */
+    RecyclerView getRecyclerView() {
+        return mRecyclerView;
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        mRecyclerView = recyclerView;
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        if (mRecyclerView == recyclerView) {
+            mRecyclerView = null;
+        }
+        if (mChangeBatcher != null) {
+            // the item views are bound from scratch when the adapter is attached again
+            mChangeBatcher.cancel();
+        }
+    }
+
     @Override
     public void onViewRecycled(ItemViewHolder viewHolder) {
         viewHolder.setOnItemClickedListener(null);
@@ -391,6 +998,49 @@ public class ItemAdapter<T extends ItemAdapter.ItemHolder>
             }
         }
 
+        /**
+         * Notifies that only some fields of the item changed, via a {@link FieldsChanged} payload
+         * that lets the bound view holders update just the views showing those fields.
+         *
+         * @param fields the bitmask of the changed fields, whose meaning is defined by the
+         *               subclass
+         */
+        public final void notifyFieldsChanged(int fields) {
+            notifyItemChanged(new FieldsChanged(fields));
+        }
+
+        /**
+         * @return {@code true} while the change being notified is the expansion or collapse of
+         * the item
+         */
+        boolean isNotifyingExpansionChange() {
+            return false;
+        }
+
+        /**
+         * Used to skip the instance state transfer between item holders with a matching
+         * {@link #itemId} when the dataset changes. Subclasses that do not override
+         * {@link #onSaveInstanceState(Bundle)} should return {@code false}.
+         *
+         * @return {@code true} if this holder has per-instance state to be transferred
+         */
+        public boolean hasTransferableState() {
+            return true;
+        }
+
+        /**
+         * Called to transfer per-instance state from an old item holder with a matching
+         * {@link #itemId} when the dataset changes, without the {@link Bundle} round trip through
+         * {@link #onSaveInstanceState(Bundle)} and {@link #onRestoreInstanceState(Bundle)}.
+         *
+         * @param oldItemHolder the item holder being replaced by this one
+         * @return {@code true} if the state has been transferred, {@code false} to fall back to
+         * the {@link Bundle} round trip
+         */
+        protected boolean onTransferInstanceState(ItemHolder<?> oldItemHolder) {
+            return false;
+        }
+
         /**
          * Called to retrieve per-instance state when the item may disappear or change so that
          * state can be restored in {@link #onRestoreInstanceState(Bundle)}.
@@ -435,6 +1085,16 @@ public class ItemAdapter<T extends ItemAdapter.ItemHolder>
          */
         private OnItemClickedListener mOnItemClickedListener;
 
+        /**
+         * The adapter that bound this holder, {@code null} if unbound.
+         */
+        private ItemAdapter<?> mAdapter;
+
+        /**
+         * Version of the items of {@link #mAdapter} that {@link #mItemHolder} belongs to.
+         */
+        private int mItemsVersion;
+
         /**
          * Designated constructor.
          *
@@ -447,7 +1107,19 @@ public class ItemAdapter<T extends ItemAdapter.ItemHolder>
         /**
          * @return the current {@link ItemHolder} bound to this holder, or {@code null} if unbound
          */
+        @SuppressWarnings("unchecked")
         public final T getItemHolder() {
+            final ItemAdapter<?> adapter = mAdapter;
+            if (mItemHolder != null && adapter != null && adapter.mItemsVersion != mItemsVersion
+                    && adapter.hasStableIds()) {
+                // the rows whose contents did not change are not re-bound when the items are
+                // replaced, follow the item to the holder with the same id in the new items
+                final ItemHolder<?> itemHolder = adapter.findItemById(mItemHolder.itemId);
+                if (itemHolder != null) {
+                    mItemHolder = (T) itemHolder;
+                }
+                mItemsVersion = adapter.mItemsVersion;
+            }
             return mItemHolder;
         }
 
@@ -459,6 +1131,14 @@ public class ItemAdapter<T extends ItemAdapter.ItemHolder>
         public final void bindItemView(T itemHolder) {
             mItemHolder = itemHolder;
             onBindItemView(itemHolder);
+            onItemViewBound();
+        }
+
+        /**
+         * Called after every full bind of the holder's {@link #itemView}.
+         */
+        void onItemViewBound() {
+            // for the holders of this library
         }
 
         /**
@@ -469,16 +1149,71 @@ public class ItemAdapter<T extends ItemAdapter.ItemHolder>
          */
         abstract protected void onBindItemView(T itemHolder);
 
+        /**
+         * Updates the holder's {@link #itemView} after an in-place change of the bound item,
+         * falling back to a full {@link #bindItemView(ItemHolder)} if the payloads are not handled
+         * by {@link #onBindItemView(ItemHolder, List)}.
+         *
+         * @param itemHolder the {@link ItemHolder} bound to this holder
+         * @param payloads   the payloads of the change, e.g. {@link ExpansionChanged} or
+         *                   {@link FieldsChanged}
+         */
+        public final void bindItemView(T itemHolder, List<Object> payloads) {
+            if (getItemHolder() != itemHolder || payloads.isEmpty()
+                    || !onBindItemView(itemHolder, payloads)) {
+                bindItemView(itemHolder);
+            }
+        }
+
+        /**
+         * Called when the item already bound to the holder changed in place. Subclassers may
+         * override to update only the views affected by the payloads.
+         *
+         * @param itemHolder the {@link ItemHolder} bound to this holder
+         * @param payloads   the payloads of the change, not empty
+         * @return {@code true} if the views have been updated, {@code false} to perform a full bind
+         * through {@link #onBindItemView(ItemHolder)}
+         */
+        protected boolean onBindItemView(T itemHolder, List<Object> payloads) {
+            return false;
+        }
+
         /**
          * Recycles the current item view, unbinding the current item holder and state.
          */
         public final void recycleItemView() {
             mItemHolder = null;
             mOnItemClickedListener = null;
+            mAdapter = null;
 
+            onItemViewRecycled();
             onRecycleItemView();
         }
 
+        /**
+         * Subclassers may use the height to size a skeleton of their {@link #itemView} while the
+         * actual content is bound, e.g. by {@link ExpandedViewHolder} after the expand animation.
+         *
+         * @return the height last measured for the bound item with the view type of this holder
+         * and its current expanded state, see
+         * {@link ItemAdapter#getCachedItemHeight(long, int, boolean)}, or {@code -1} if unknown
+         */
+        protected final int getCachedItemHeight() {
+            final ItemAdapter<?> adapter = mAdapter;
+            final ItemHolder itemHolder = getItemHolder();
+            return adapter != null && itemHolder != null && itemHolder.itemId != NO_ID
+                    ? adapter.getCachedItemHeight(itemHolder.itemId, getItemViewType(),
+                            isItemExpanded(itemHolder))
+                    : ItemHeightCache.UNKNOWN_HEIGHT;
+        }
+
+        /**
+         * Called when the holder is recycled, before {@link #onRecycleItemView()}.
+         */
+        void onItemViewRecycled() {
+            // for the holders of this library
+        }
+
         /**
          * Called when the current item view is recycled. Subclassers should override to release
          * any bound item state and prepare their {@link #itemView} for reuse.
@@ -527,6 +1262,256 @@ public class ItemAdapter<T extends ItemAdapter.ItemHolder>
             @LayoutRes
             int getItemViewLayoutId();
         }
+
+        /**
+         * {@link Factory} able to wrap an item view inflated ahead of time, possibly off the main
+         * thread, into a new {@link ItemViewHolder}. {@link Factory#createViewHolder(ViewGroup, int)}
+         * remains the fallback when no such view is available.
+         */
+        public interface InflatedViewFactory extends Factory {
+            /**
+             * Used by {@link ItemAdapter#createViewHolder(ViewGroup, int)} to make new
+             * {@link ItemViewHolder} around an already inflated item view.
+             *
+             * @param itemView the item view inflated from {@link #getItemViewLayoutId()}, not yet
+             *                 attached to a parent
+             * @param viewType the unique id of the item view
+             * @return a new initialized {@link ItemViewHolder}
+             */
+            ItemViewHolder<?> createViewHolder(View itemView, int viewType);
+        }
+    }
+
+    /**
+     * Payload of the in-place change of the expanded state of an item, used when both states are
+     * shown by the same view type.
+     */
+    public static final class ExpansionChanged {
+
+        public static final ExpansionChanged INSTANCE = new ExpansionChanged();
+
+        private ExpansionChanged() {
+        }
+
+        /**
+         * @param payloads the payloads of a change
+         * @return {@code true} if the payloads include an {@link ExpansionChanged}
+         */
+        public static boolean isIn(List<Object> payloads) {
+            return payloads.contains(INSTANCE);
+        }
+    }
+
+    /**
+     * Payload of the change replacing the placeholders of a {@link PagedItemList} once the page
+     * of their items is loaded.
+     */
+    public static final class PlaceholderLoaded {
+
+        public static final PlaceholderLoaded INSTANCE = new PlaceholderLoaded();
+
+        private PlaceholderLoaded() {
+        }
+    }
+
+    /**
+     * Payload of a change affecting only some fields of an item, described by a bitmask whose
+     * meaning is defined by the {@link ItemHolder} subclass.
+     *
+     * @see ItemHolder#notifyFieldsChanged(int)
+     */
+    public static final class FieldsChanged {
+
+        /**
+         * Bitmask including all the fields.
+         */
+        public static final int ALL_FIELDS = ~0;
+
+        /**
+         * The bitmask of the changed fields.
+         */
+        public final int fields;
+
+        public FieldsChanged(int fields) {
+            this.fields = fields;
+        }
+
+        /**
+         * Merges the payloads of one or more changes into the bitmask of the changed fields.
+         *
+         * @param payloads the payloads of the changes
+         * @return the union of the fields of the {@link FieldsChanged} payloads, {@link #ALL_FIELDS}
+         * if there are no payloads or some of them are of other types, except
+         * {@link ExpansionChanged} ones which do not affect any field
+         */
+        public static int getChangedFields(List<Object> payloads) {
+            if (payloads.isEmpty()) {
+                return ALL_FIELDS;
+            }
+
+            int fields = 0;
+            for (int i = 0, size = payloads.size(); i < size; i++) {
+                final Object payload = payloads.get(i);
+                if (payload instanceof FieldsChanged) {
+                    fields |= ((FieldsChanged) payload).fields;
+                } else if (payload != ExpansionChanged.INSTANCE) {
+                    return ALL_FIELDS;
+                }
+            }
+            return fields;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof FieldsChanged && ((FieldsChanged) o).fields == fields;
+        }
+
+        @Override
+        public int hashCode() {
+            return fields;
+        }
+    }
+
+    /**
+     * {@link ContentComparator} that considers two item holders unchanged when their items are
+     * equal according to {@link Item#equals(Object)}.
+     */
+    public static final ContentComparator<ItemHolder> ITEM_EQUALS_COMPARATOR =
+            new ContentComparator<ItemHolder>() {
+                @Override
+                public boolean areContentsTheSame(ItemHolder oldItemHolder, ItemHolder newItemHolder) {
+                    return oldItemHolder.item == null
+                            ? newItemHolder.item == null
+                            : oldItemHolder.item.equals(newItemHolder.item);
+                }
+            };
+
+    /**
+     * Callback interface used by {@link #setItems(List, ContentComparator)} to detect the items
+     * that changed between two lists.
+     *
+     * @param <T> the item holder type
+     */
+    public interface ContentComparator<T extends ItemHolder> {
+        /**
+         * Invoked only for item holders having the same {@link ItemHolder#itemId}.
+         *
+         * @param oldItemHolder the item holder in the current list
+         * @param newItemHolder the item holder in the new list
+         * @return {@code true} if the item does not need to be re-bound
+         */
+        boolean areContentsTheSame(T oldItemHolder, T newItemHolder);
+    }
+
+    /**
+     * Replacement of the list of item holders of an {@link ItemAdapter}, created by
+     * {@link #newItemsUpdate(List, ContentComparator)}, whose diff can be calculated off the main
+     * thread. The instance state is transferred when the update is applied.
+     *
+     * @param <T> the item holder type
+     */
+    public static final class ItemsUpdate<T extends ItemHolder> {
+
+        private final ItemAdapter<T> mAdapter;
+        private final List<T> mOldItemHolders;
+        private final List<T> mNewItemHolders;
+        private final ContentComparator<? super T> mComparator;
+        private final int mVersion;
+
+        private volatile DiffUtil.DiffResult mDiffResult;
+
+        /**
+         * Ids of the items whose contents changed, filled by {@link #calculate()}.
+         */
+        private final LongArrayList mChangedIds = new LongArrayList();
+
+        ItemsUpdate(ItemAdapter<T> adapter, List<T> oldItemHolders, List<T> newItemHolders,
+                    ContentComparator<? super T> comparator, int version) {
+            mAdapter = adapter;
+            mOldItemHolders = oldItemHolders;
+            mNewItemHolders = newItemHolders;
+            mComparator = comparator;
+            mVersion = version;
+        }
+
+        /**
+         * Computes the differences between the snapshot of the old item holders and the new ones,
+         * matching them by {@link ItemHolder#itemId} and comparing their items only. Can be
+         * invoked on any thread, since neither the item holders nor the adapter are modified.
+         *
+         * @return this object, allowing calls to methods in this class to be chained
+         */
+        public ItemsUpdate<T> calculate() {
+            if (mOldItemHolders != null && mDiffResult == null) {
+                mChangedIds.clear();
+                mDiffResult = DiffUtil.calculateDiff(mAdapter.new ItemHolderDiffCallback(
+                        mOldItemHolders, mNewItemHolders, mComparator, mChangedIds, false));
+            }
+            return this;
+        }
+
+        /**
+         * @return the new list of item holders
+         */
+        public List<T> getItems() {
+            return mNewItemHolders;
+        }
+    }
+
+    /**
+     * {@link DiffUtil.Callback} matching item holders by {@link ItemHolder#itemId}.
+     */
+    private final class ItemHolderDiffCallback extends DiffUtil.Callback {
+
+        private final List<T> mOldItemHolders;
+        private final List<T> mNewItemHolders;
+        private final ContentComparator<? super T> mComparator;
+        private final LongArrayList mChangedIds;
+
+        /**
+         * Whether the view types are compared too, which is possible on the main thread only.
+         */
+        private final boolean mCompareViewTypes;
+
+        ItemHolderDiffCallback(List<T> oldItemHolders, List<T> newItemHolders,
+                               ContentComparator<? super T> comparator, LongArrayList changedIds,
+                               boolean compareViewTypes) {
+            mOldItemHolders = oldItemHolders;
+            mNewItemHolders = newItemHolders;
+            mComparator = comparator;
+            mChangedIds = changedIds;
+            mCompareViewTypes = compareViewTypes;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return mOldItemHolders.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return mNewItemHolders.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return mOldItemHolders.get(oldItemPosition).itemId
+                    == mNewItemHolders.get(newItemPosition).itemId;
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            final T oldItemHolder = mOldItemHolders.get(oldItemPosition);
+            final T newItemHolder = mNewItemHolders.get(newItemPosition);
+            // a different view type always requires a new view holder to be bound
+            final boolean same = (!mCompareViewTypes
+                    || resolveItemViewType(oldItemHolder) == resolveItemViewType(newItemHolder))
+                    && mComparator.areContentsTheSame(oldItemHolder, newItemHolder);
+            if (!same) {
+                mChangedIds.add(newItemHolder.itemId);
+            }
+            return same;
+        }
     }
 
     /**
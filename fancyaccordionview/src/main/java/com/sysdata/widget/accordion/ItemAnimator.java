@@ -18,57 +18,104 @@ package com.sysdata.widget.accordion;
 
 import android.animation.Animator;
 import android.animation.AnimatorListenerAdapter;
-import android.animation.AnimatorSet;
-import android.animation.ObjectAnimator;
-import android.animation.PropertyValuesHolder;
+import android.animation.ValueAnimator;
+import android.support.annotation.IntDef;
 import android.support.annotation.NonNull;
-import android.support.v4.util.ArrayMap;
-import android.support.v4.view.animation.FastOutSlowInInterpolator;
 import android.support.v7.widget.RecyclerView.State;
 import android.support.v7.widget.RecyclerView.ViewHolder;
 import android.support.v7.widget.SimpleItemAnimator;
 import android.view.View;
 
+import com.sysdata.widget.accordion.utils.AnimatorUtils;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-
-import static android.view.View.TRANSLATION_X;
-import static android.view.View.TRANSLATION_Y;
 
 public class ItemAnimator extends SimpleItemAnimator {
 
-    private final List<Animator> mAddAnimatorsList = new ArrayList<>();
-    private final List<Animator> mRemoveAnimatorsList = new ArrayList<>();
-    private final List<Animator> mChangeAnimatorsList = new ArrayList<>();
-    private final List<Animator> mMoveAnimatorsList = new ArrayList<>();
+    /**
+     * Expand and collapse morphs animate the bounds of the item views, laying them out on every
+     * frame.
+     */
+    public static final int ANIMATION_MODE_LAYOUT = 0;
+
+    /**
+     * Expand and collapse morphs animate the translation, clip bounds and alpha of the item views,
+     * which are render node properties updated without layout nor redraw.
+     */
+    public static final int ANIMATION_MODE_RENDER_NODE = 1;
+
+    @Retention(RetentionPolicy.SOURCE)
+    @IntDef({ANIMATION_MODE_LAYOUT, ANIMATION_MODE_RENDER_NODE})
+    public @interface AnimationMode {
+    }
+
+    private static final int KIND_REMOVE = 0;
+    private static final int KIND_MOVE = 1;
+    private static final int KIND_CHANGE = 2;
+    private static final int KIND_ADD = 3;
+    private static final int KIND_COUNT = 4;
+
+    /**
+     * Maximum number of released animations kept for reuse per kind.
+     */
+    private static final int MAX_POOL_SIZE = 64;
+
+    private final PendingAnimations mPendingRemoves = new PendingAnimations();
+    private final PendingAnimations mPendingChanges = new PendingAnimations();
+    private final PendingAnimations mPendingMoves = new PendingAnimations();
+    private final PendingAnimations mPendingAdds = new PendingAnimations();
+
+    /**
+     * Head of the intrusive list of the tracked animations, pending or running. The animation of
+     * a holder is also stored as a tag of its item view, so that it is found in constant time.
+     */
+    private ItemAnimation mAnimationsHead;
+    private int mAnimationCount;
+
+    @AnimationMode
+    private int mAnimationMode = ANIMATION_MODE_LAYOUT;
+
+    /**
+     * Released animations ready to be reused, indexed by kind.
+     */
+    private final ItemAnimationPool[] mPools = new ItemAnimationPool[KIND_COUNT];
+
+    public ItemAnimator() {
+        for (int kind = 0; kind < KIND_COUNT; kind++) {
+            mPools[kind] = new ItemAnimationPool();
+        }
+    }
+
+    /**
+     * @return the mode used by the view holders to animate expand and collapse morphs
+     */
+    @AnimationMode
+    public int getAnimationMode() {
+        return mAnimationMode;
+    }
 
-    private final Map<ViewHolder, Animator> mAnimators = new ArrayMap<>();
+    /**
+     * Sets the mode used by the view holders to animate expand and collapse morphs, by default
+     * {@link #ANIMATION_MODE_LAYOUT}. {@link #ANIMATION_MODE_RENDER_NODE} keeps the per-frame
+     * work of the main thread to a few property updates, so that the morphs stay smooth when the
+     * main thread is busy binding or collecting garbage.
+     *
+     * @param animationMode the animation mode
+     */
+    public void setAnimationMode(@AnimationMode int animationMode) {
+        mAnimationMode = animationMode;
+    }
 
     @Override
     public boolean animateRemove(final ViewHolder holder) {
         endAnimation(holder);
 
-        final float prevAlpha = holder.itemView.getAlpha();
-
-        final Animator removeAnimator = ObjectAnimator.ofFloat(holder.itemView, View.ALPHA, 0f);
-        removeAnimator.setDuration(getRemoveDuration());
-        removeAnimator.addListener(new AnimatorListenerAdapter() {
-            @Override
-            public void onAnimationStart(Animator animator) {
-                dispatchRemoveStarting(holder);
-            }
-
-            @Override
-            public void onAnimationEnd(Animator animator) {
-                animator.removeAllListeners();
-                mAnimators.remove(holder);
-                holder.itemView.setAlpha(prevAlpha);
-                dispatchRemoveFinished(holder);
-            }
-        });
-        mRemoveAnimatorsList.add(removeAnimator);
-        mAnimators.put(holder, removeAnimator);
+        final ItemAnimation removeAnimation = obtainAnimation(KIND_REMOVE, holder, getRemoveDuration());
+        removeAnimation.mPrevAlpha = holder.itemView.getAlpha();
+        mPendingRemoves.add(removeAnimation);
         return true;
     }
 
@@ -76,27 +123,10 @@ public class ItemAnimator extends SimpleItemAnimator {
     public boolean animateAdd(final ViewHolder holder) {
         endAnimation(holder);
 
-        final float prevAlpha = holder.itemView.getAlpha();
+        final ItemAnimation addAnimation = obtainAnimation(KIND_ADD, holder, getAddDuration());
+        addAnimation.mPrevAlpha = holder.itemView.getAlpha();
         holder.itemView.setAlpha(0f);
-
-        final Animator addAnimator = ObjectAnimator.ofFloat(holder.itemView, View.ALPHA, 1f)
-                .setDuration(getAddDuration());
-        addAnimator.addListener(new AnimatorListenerAdapter() {
-            @Override
-            public void onAnimationStart(Animator animator) {
-                dispatchAddStarting(holder);
-            }
-
-            @Override
-            public void onAnimationEnd(Animator animator) {
-                animator.removeAllListeners();
-                mAnimators.remove(holder);
-                holder.itemView.setAlpha(prevAlpha);
-                dispatchAddFinished(holder);
-            }
-        });
-        mAddAnimatorsList.add(addAnimator);
-        mAnimators.put(holder, addAnimator);
+        mPendingAdds.add(addAnimation);
         return true;
     }
 
@@ -106,7 +136,6 @@ public class ItemAnimator extends SimpleItemAnimator {
 
         final int deltaX = toX - fromX;
         final int deltaY = toY - fromY;
-        final long moveDuration = getMoveDuration();
 
         if (deltaX == 0 && deltaY == 0) {
             dispatchMoveFinished(holder);
@@ -114,43 +143,15 @@ public class ItemAnimator extends SimpleItemAnimator {
         }
 
         final View view = holder.itemView;
-        final float prevTranslationX = view.getTranslationX();
-        final float prevTranslationY = view.getTranslationY();
+        final ItemAnimation moveAnimation = obtainAnimation(KIND_MOVE, holder, getMoveDuration());
+        moveAnimation.mPrevTranslationX = view.getTranslationX();
+        moveAnimation.mPrevTranslationY = view.getTranslationY();
+        moveAnimation.mDeltaX = deltaX;
+        moveAnimation.mDeltaY = deltaY;
         view.setTranslationX(-deltaX);
         view.setTranslationY(-deltaY);
 
-        final ObjectAnimator moveAnimator;
-        if (deltaX != 0 && deltaY != 0) {
-            final PropertyValuesHolder moveX = PropertyValuesHolder.ofFloat(TRANSLATION_X, 0f);
-            final PropertyValuesHolder moveY = PropertyValuesHolder.ofFloat(TRANSLATION_Y, 0f);
-            moveAnimator = ObjectAnimator.ofPropertyValuesHolder(holder.itemView, moveX, moveY);
-        } else if (deltaX != 0) {
-            final PropertyValuesHolder moveX = PropertyValuesHolder.ofFloat(TRANSLATION_X, 0f);
-            moveAnimator = ObjectAnimator.ofPropertyValuesHolder(holder.itemView, moveX);
-        } else {
-            final PropertyValuesHolder moveY = PropertyValuesHolder.ofFloat(TRANSLATION_Y, 0f);
-            moveAnimator = ObjectAnimator.ofPropertyValuesHolder(holder.itemView, moveY);
-        }
-
-        moveAnimator.setDuration(moveDuration);
-        moveAnimator.setInterpolator(new FastOutSlowInInterpolator());
-        moveAnimator.addListener(new AnimatorListenerAdapter() {
-            @Override
-            public void onAnimationStart(Animator animator) {
-                dispatchMoveStarting(holder);
-            }
-
-            @Override
-            public void onAnimationEnd(Animator animator) {
-                animator.removeAllListeners();
-                mAnimators.remove(holder);
-                view.setTranslationX(prevTranslationX);
-                view.setTranslationY(prevTranslationY);
-                dispatchMoveFinished(holder);
-            }
-        });
-        mMoveAnimatorsList.add(moveAnimator);
-        mAnimators.put(holder, moveAnimator);
+        mPendingMoves.add(moveAnimation);
 
         return true;
     }
@@ -167,6 +168,10 @@ public class ItemAnimator extends SimpleItemAnimator {
                 ? ((PayloadItemHolderInfo) preInfo).getPayloads() : null;
 
         if (oldHolder == newHolder) {
+            if (!(newHolder instanceof OnAnimateChangeListener)) {
+                dispatchChangeFinished(newHolder, false);
+                return false;
+            }
             final Animator animator = ((OnAnimateChangeListener) newHolder)
                     .onAnimateChange(payloads, preInfo.left, preInfo.top, preInfo.right,
                             preInfo.bottom, changeDuration);
@@ -174,21 +179,7 @@ public class ItemAnimator extends SimpleItemAnimator {
                 dispatchChangeFinished(newHolder, false);
                 return false;
             }
-            animator.addListener(new AnimatorListenerAdapter() {
-                @Override
-                public void onAnimationStart(Animator animator) {
-                    dispatchChangeStarting(newHolder, false);
-                }
-
-                @Override
-                public void onAnimationEnd(Animator animator) {
-                    animator.removeAllListeners();
-                    mAnimators.remove(newHolder);
-                    dispatchChangeFinished(newHolder, false);
-                }
-            });
-            mChangeAnimatorsList.add(animator);
-            mAnimators.put(newHolder, animator);
+            addChangeAnimation(newHolder, animator, false);
             return true;
         } else if (!(oldHolder instanceof OnAnimateChangeListener) ||
                 !(newHolder instanceof OnAnimateChangeListener)) {
@@ -201,21 +192,7 @@ public class ItemAnimator extends SimpleItemAnimator {
         final Animator oldChangeAnimator = ((OnAnimateChangeListener) oldHolder)
                 .onAnimateChange(oldHolder, newHolder, changeDuration);
         if (oldChangeAnimator != null) {
-            oldChangeAnimator.addListener(new AnimatorListenerAdapter() {
-                @Override
-                public void onAnimationStart(Animator animator) {
-                    dispatchChangeStarting(oldHolder, true);
-                }
-
-                @Override
-                public void onAnimationEnd(Animator animator) {
-                    animator.removeAllListeners();
-                    mAnimators.remove(oldHolder);
-                    dispatchChangeFinished(oldHolder, true);
-                }
-            });
-            mAnimators.put(oldHolder, oldChangeAnimator);
-            mChangeAnimatorsList.add(oldChangeAnimator);
+            addChangeAnimation(oldHolder, oldChangeAnimator, true);
         } else {
             dispatchChangeFinished(oldHolder, true);
         }
@@ -223,21 +200,7 @@ public class ItemAnimator extends SimpleItemAnimator {
         final Animator newChangeAnimator = ((OnAnimateChangeListener) newHolder)
                 .onAnimateChange(oldHolder, newHolder, changeDuration);
         if (newChangeAnimator != null) {
-            newChangeAnimator.addListener(new AnimatorListenerAdapter() {
-                @Override
-                public void onAnimationStart(Animator animator) {
-                    dispatchChangeStarting(newHolder, false);
-                }
-
-                @Override
-                public void onAnimationEnd(Animator animator) {
-                    animator.removeAllListeners();
-                    mAnimators.remove(newHolder);
-                    dispatchChangeFinished(newHolder, false);
-                }
-            });
-            mAnimators.put(newHolder, newChangeAnimator);
-            mChangeAnimatorsList.add(newChangeAnimator);
+            addChangeAnimation(newHolder, newChangeAnimator, false);
         } else {
             dispatchChangeFinished(newHolder, false);
         }
@@ -245,6 +208,12 @@ public class ItemAnimator extends SimpleItemAnimator {
         return true;
     }
 
+    private void addChangeAnimation(ViewHolder holder, Animator animator, boolean oldItem) {
+        final ItemAnimation changeAnimation = obtainAnimation(KIND_CHANGE, holder, 0L);
+        changeAnimation.setChangeAnimator(animator, oldItem);
+        mPendingChanges.add(changeAnimation);
+    }
+
     @Override
     public boolean animateChange(ViewHolder oldHolder,
                                  ViewHolder newHolder, int fromLeft, int fromTop, int toLeft, int toTop) {
@@ -254,53 +223,42 @@ public class ItemAnimator extends SimpleItemAnimator {
 
     @Override
     public void runPendingAnimations() {
-        final AnimatorSet removeAnimatorSet = new AnimatorSet();
-        removeAnimatorSet.playTogether(mRemoveAnimatorsList);
-        mRemoveAnimatorsList.clear();
-
-        final AnimatorSet addAnimatorSet = new AnimatorSet();
-        addAnimatorSet.playTogether(mAddAnimatorsList);
-        mAddAnimatorsList.clear();
-
-        final AnimatorSet changeAnimatorSet = new AnimatorSet();
-        changeAnimatorSet.playTogether(mChangeAnimatorsList);
-        mChangeAnimatorsList.clear();
-
-        final AnimatorSet moveAnimatorSet = new AnimatorSet();
-        moveAnimatorSet.playTogether(mMoveAnimatorsList);
-        mMoveAnimatorsList.clear();
-
-        final AnimatorSet pendingAnimatorSet = new AnimatorSet();
-        pendingAnimatorSet.addListener(new AnimatorListenerAdapter() {
-            @Override
-            public void onAnimationEnd(Animator animator) {
-                animator.removeAllListeners();
-                dispatchFinishedWhenDone();
-            }
-        });
-        // Required order: removes, then changes & moves simultaneously, then additions. There are
-        // redundant edges because changes or moves may be empty, causing the removes to incorrectly
-        // play immediately.
-        pendingAnimatorSet.play(removeAnimatorSet).before(changeAnimatorSet);
-        pendingAnimatorSet.play(removeAnimatorSet).before(moveAnimatorSet);
-        pendingAnimatorSet.play(changeAnimatorSet).with(moveAnimatorSet);
-        pendingAnimatorSet.play(addAnimatorSet).after(changeAnimatorSet);
-        pendingAnimatorSet.play(addAnimatorSet).after(moveAnimatorSet);
-        pendingAnimatorSet.start();
+        final boolean removalsPending = !mPendingRemoves.isEmpty();
+        final boolean changesPending = !mPendingChanges.isEmpty();
+        final boolean movesPending = !mPendingMoves.isEmpty();
+        final boolean additionsPending = !mPendingAdds.isEmpty();
+        if (!removalsPending && !changesPending && !movesPending && !additionsPending) {
+            dispatchFinishedWhenDone();
+            return;
+        }
+
+        // Required order: removes, then changes & moves simultaneously, then additions. Each
+        // phase is delayed by the duration of the non-empty phases before it, so empty phases
+        // are skipped entirely.
+        final long changeMoveDelay = removalsPending ? getRemoveDuration() : 0L;
+        final long addDelay = changeMoveDelay + Math.max(
+                changesPending ? getChangeDuration() : 0L, movesPending ? getMoveDuration() : 0L);
+
+        startPendingAnimations(mPendingRemoves, 0L);
+        startPendingAnimations(mPendingChanges, changeMoveDelay);
+        startPendingAnimations(mPendingMoves, changeMoveDelay);
+        startPendingAnimations(mPendingAdds, addDelay);
+    }
+
+    private static void startPendingAnimations(PendingAnimations pendingAnimations, long delay) {
+        // drain from the end, an animation may end and leave the list while others are started
+        ItemAnimation animation;
+        while ((animation = pendingAnimations.removeLast()) != null) {
+            animation.mAnimator.setStartDelay(delay);
+            animation.mAnimator.start();
+        }
     }
 
     @Override
     public void endAnimation(ViewHolder holder) {
-        final Animator animator = mAnimators.get(holder);
-
-        mAnimators.remove(holder);
-        mAddAnimatorsList.remove(animator);
-        mRemoveAnimatorsList.remove(animator);
-        mChangeAnimatorsList.remove(animator);
-        mMoveAnimatorsList.remove(animator);
-
-        if (animator != null) {
-            animator.end();
+        final Object animation = holder.itemView.getTag(R.id.accordion_item_animation);
+        if (animation instanceof ItemAnimation && ((ItemAnimation) animation).mHolder == holder) {
+            endAnimation((ItemAnimation) animation);
         }
 
         dispatchFinishedWhenDone();
@@ -308,16 +266,74 @@ public class ItemAnimator extends SimpleItemAnimator {
 
     @Override
     public void endAnimations() {
-        final List<Animator> animatorList = new ArrayList<>(mAnimators.values());
-        for (Animator animator : animatorList) {
-            animator.end();
+        // ending an animation unlinks it, so the head is always the next one to end
+        while (mAnimationsHead != null) {
+            endAnimation(mAnimationsHead);
         }
         dispatchFinishedWhenDone();
     }
 
+    private void endAnimation(ItemAnimation animation) {
+        if (animation.mPendingAnimations != null) {
+            animation.mPendingAnimations.remove(animation);
+        }
+
+        final ViewHolder holder = animation.mHolder;
+        animation.mAnimator.end();
+        if (animation.mHolder == holder && holder != null) {
+            // never started animators may not notify their end
+            animation.finish();
+        }
+    }
+
     @Override
     public boolean isRunning() {
-        return !mAnimators.isEmpty();
+        return mAnimationCount > 0;
+    }
+
+    /**
+     * @return a reset animation of the given kind bound to the holder, reused from the pool when
+     * possible
+     */
+    private ItemAnimation obtainAnimation(int kind, ViewHolder holder, long duration) {
+        ItemAnimation animation = mPools[kind].acquire();
+        if (animation == null) {
+            animation = new ItemAnimation(kind);
+        }
+        animation.mHolder = holder;
+        if (kind != KIND_CHANGE) {
+            animation.mAnimator.setDuration(duration);
+        }
+        track(animation);
+        return animation;
+    }
+
+    private void track(ItemAnimation animation) {
+        animation.mHolder.itemView.setTag(R.id.accordion_item_animation, animation);
+        animation.mNext = mAnimationsHead;
+        if (mAnimationsHead != null) {
+            mAnimationsHead.mPrev = animation;
+        }
+        mAnimationsHead = animation;
+        mAnimationCount++;
+    }
+
+    private void untrack(ItemAnimation animation) {
+        final View itemView = animation.mHolder.itemView;
+        if (itemView.getTag(R.id.accordion_item_animation) == animation) {
+            itemView.setTag(R.id.accordion_item_animation, null);
+        }
+        if (animation.mPrev != null) {
+            animation.mPrev.mNext = animation.mNext;
+        } else {
+            mAnimationsHead = animation.mNext;
+        }
+        if (animation.mNext != null) {
+            animation.mNext.mPrev = animation.mPrev;
+        }
+        animation.mPrev = null;
+        animation.mNext = null;
+        mAnimationCount--;
     }
 
     private void dispatchFinishedWhenDone() {
@@ -353,6 +369,225 @@ public class ItemAnimator extends SimpleItemAnimator {
         return !payloads.isEmpty() || defaultReusePolicy;
     }
 
+    /**
+     * Animation of a single view holder. Add, remove and move animations own a
+     * {@link ValueAnimator} created once and driven without boxing, change animations wrap the
+     * animator provided by the {@link OnAnimateChangeListener}. Instances are reset and returned
+     * to the pool of their kind once finished.
+     */
+    private final class ItemAnimation extends AnimatorListenerAdapter
+            implements ValueAnimator.AnimatorUpdateListener {
+
+        final int mKind;
+        Animator mAnimator;
+
+        ViewHolder mHolder;
+        boolean mOldItem;
+
+        /**
+         * Links of the list of tracked animations.
+         */
+        ItemAnimation mPrev;
+        ItemAnimation mNext;
+
+        /**
+         * The pending phase holding this animation and its index there, until started.
+         */
+        PendingAnimations mPendingAnimations;
+        int mPendingIndex;
+
+        float mPrevAlpha;
+        float mPrevTranslationX;
+        float mPrevTranslationY;
+        int mDeltaX;
+        int mDeltaY;
+
+        ItemAnimation(int kind) {
+            mKind = kind;
+            if (kind != KIND_CHANGE) {
+                final ValueAnimator animator = ValueAnimator.ofFloat(0f, 1f);
+                if (kind == KIND_MOVE) {
+                    animator.setInterpolator(AnimatorUtils.INTERPOLATOR_FAST_OUT_SLOW_IN);
+                }
+                animator.addUpdateListener(this);
+                animator.addListener(this);
+                mAnimator = animator;
+            }
+        }
+
+        void setChangeAnimator(Animator animator, boolean oldItem) {
+            mAnimator = animator;
+            mOldItem = oldItem;
+            animator.addListener(this);
+        }
+
+        @Override
+        public void onAnimationUpdate(ValueAnimator animator) {
+            final float fraction = animator.getAnimatedFraction();
+            final View view = mHolder.itemView;
+            switch (mKind) {
+                case KIND_ADD:
+                    view.setAlpha(fraction);
+                    break;
+                case KIND_REMOVE:
+                    view.setAlpha(mPrevAlpha * (1f - fraction));
+                    break;
+                case KIND_MOVE:
+                    if (mDeltaX != 0) {
+                        view.setTranslationX(-mDeltaX * (1f - fraction));
+                    }
+                    if (mDeltaY != 0) {
+                        view.setTranslationY(-mDeltaY * (1f - fraction));
+                    }
+                    break;
+            }
+        }
+
+        @Override
+        public void onAnimationStart(Animator animator) {
+            if (mHolder == null) {
+                return;
+            }
+            switch (mKind) {
+                case KIND_ADD:
+                    dispatchAddStarting(mHolder);
+                    break;
+                case KIND_REMOVE:
+                    dispatchRemoveStarting(mHolder);
+                    break;
+                case KIND_MOVE:
+                    dispatchMoveStarting(mHolder);
+                    break;
+                case KIND_CHANGE:
+                    dispatchChangeStarting(mHolder, mOldItem);
+                    break;
+            }
+        }
+
+        @Override
+        public void onAnimationEnd(Animator animator) {
+            finish();
+        }
+
+        /**
+         * Restores the view, releases this animation and dispatches the end of the animation.
+         */
+        void finish() {
+            final ViewHolder holder = mHolder;
+            if (holder == null) {
+                return;
+            }
+            untrack(this);
+
+            final View view = holder.itemView;
+            final int kind = mKind;
+            final boolean oldItem = mOldItem;
+            switch (kind) {
+                case KIND_ADD:
+                case KIND_REMOVE:
+                    view.setAlpha(mPrevAlpha);
+                    break;
+                case KIND_MOVE:
+                    view.setTranslationX(mPrevTranslationX);
+                    view.setTranslationY(mPrevTranslationY);
+                    break;
+            }
+            release();
+
+            switch (kind) {
+                case KIND_ADD:
+                    dispatchAddFinished(holder);
+                    break;
+                case KIND_REMOVE:
+                    dispatchRemoveFinished(holder);
+                    break;
+                case KIND_MOVE:
+                    dispatchMoveFinished(holder);
+                    break;
+                case KIND_CHANGE:
+                    dispatchChangeFinished(holder, oldItem);
+                    break;
+            }
+            dispatchFinishedWhenDone();
+        }
+
+        /**
+         * Resets this animation and returns it to the pool of its kind.
+         */
+        private void release() {
+            if (mPendingAnimations != null) {
+                mPendingAnimations.remove(this);
+            }
+            mHolder = null;
+            mOldItem = false;
+            mDeltaX = 0;
+            mDeltaY = 0;
+            if (mKind == KIND_CHANGE) {
+                mAnimator.removeListener(this);
+                mAnimator = null;
+            } else {
+                mAnimator.setStartDelay(0L);
+            }
+            mPools[mKind].release(this);
+        }
+    }
+
+    /**
+     * Unordered list of the animations of a phase waiting for {@link #runPendingAnimations()},
+     * removing any of them in constant time by moving the last one in its place.
+     */
+    private static final class PendingAnimations {
+        private final ArrayList<ItemAnimation> mAnimations = new ArrayList<>();
+
+        boolean isEmpty() {
+            return mAnimations.isEmpty();
+        }
+
+        void add(ItemAnimation animation) {
+            animation.mPendingAnimations = this;
+            animation.mPendingIndex = mAnimations.size();
+            mAnimations.add(animation);
+        }
+
+        void remove(ItemAnimation animation) {
+            final int lastIndex = mAnimations.size() - 1;
+            final ItemAnimation last = mAnimations.remove(lastIndex);
+            if (last != animation) {
+                mAnimations.set(animation.mPendingIndex, last);
+                last.mPendingIndex = animation.mPendingIndex;
+            }
+            animation.mPendingAnimations = null;
+        }
+
+        ItemAnimation removeLast() {
+            final int size = mAnimations.size();
+            if (size == 0) {
+                return null;
+            }
+            final ItemAnimation animation = mAnimations.remove(size - 1);
+            animation.mPendingAnimations = null;
+            return animation;
+        }
+    }
+
+    /**
+     * Bounded stack of released {@link ItemAnimation}s of the same kind.
+     */
+    private static final class ItemAnimationPool {
+        private final ArrayList<ItemAnimation> mAnimations = new ArrayList<>();
+
+        ItemAnimation acquire() {
+            final int size = mAnimations.size();
+            return size > 0 ? mAnimations.remove(size - 1) : null;
+        }
+
+        void release(ItemAnimation animation) {
+            if (mAnimations.size() < MAX_POOL_SIZE) {
+                mAnimations.add(animation);
+            }
+        }
+    }
+
     private static final class PayloadItemHolderInfo extends ItemHolderInfo {
         private final List<Object> mPayloads = new ArrayList<>();
 
@@ -0,0 +1,310 @@
+/*
+ * Copyright (C) 2017 Sysdata Spa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sysdata.widget.accordion;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+
+/**
+ * Collects the changes notified by the item holders of an {@link ItemAdapter} and dispatches them
+ * on the next frame.
+ * <p/>
+ * Changes without payload are recorded as dirty positions and dispatched as runs of
+ * {@link RecyclerView.Adapter#notifyItemRangeChanged(int, int)}, so that a model update touching
+ * many items results in a handful of adapter update operations. Since the recorded positions
+ * would be invalidated by a structural change, the adapter must {@link #flush()} before any.
+ * <p/>
+ * All the payloads notified for the same item holder within the frame are merged into a single
+ * notification: {@link ItemAdapter.FieldsChanged} payloads are merged into one with the union of
+ * their fields, other payloads are dispatched once each. Payloads of items whose position is
+ * dirty are dropped, as the items are going to be fully re-bound.
+ * <p/>
+ * Note: This class must be used on the main thread only.
+ */
+final class ItemChangeBatcher implements Choreographer.FrameCallback {
+
+    /**
+     * Maximum number of dispatched changes kept for reuse.
+     */
+    private static final int MAX_RECYCLED_CHANGES = 64;
+
+    private final ItemAdapter<?> mAdapter;
+
+    private boolean mBatchingPayloads;
+    private boolean mBatchingChanges;
+
+    /**
+     * Positions of the items changed without payload, to dispatch on the next frame.
+     */
+    private final BitSet mDirtyPositions = new BitSet();
+
+    /**
+     * Changes to dispatch on the next frame, keyed by item holder.
+     */
+    private final IdentityHashMap<ItemAdapter.ItemHolder<?>, PendingChange> mPendingChanges =
+            new IdentityHashMap<>();
+
+    /**
+     * Dispatched changes ready to be reused.
+     */
+    private final ArrayList<PendingChange> mRecycledChanges = new ArrayList<>();
+
+    /**
+     * Scratch list holding the changes being dispatched by {@link #flush()}.
+     */
+    private final ArrayList<PendingChange> mDispatchingChanges = new ArrayList<>();
+    private boolean mDispatching;
+
+    private boolean mScheduled;
+
+    private int mMergedCount;
+
+    ItemChangeBatcher(ItemAdapter<?> adapter) {
+        mAdapter = adapter;
+    }
+
+    void setBatchingPayloads(boolean batchingPayloads) {
+        mBatchingPayloads = batchingPayloads;
+    }
+
+    /**
+     * @return {@code true} if the changes notified with a payload are batched
+     */
+    boolean isBatchingPayloads() {
+        return mBatchingPayloads;
+    }
+
+    void setBatchingChanges(boolean batchingChanges) {
+        mBatchingChanges = batchingChanges;
+    }
+
+    /**
+     * @return {@code true} if the changes notified without payload are batched
+     */
+    boolean isBatchingChanges() {
+        return mBatchingChanges;
+    }
+
+    /**
+     * Marks the position of the item holder as changed, to be fully re-bound on the next frame.
+     *
+     * @param itemHolder the item holder that has changed
+     */
+    void addChange(ItemAdapter.ItemHolder<?> itemHolder) {
+        final int position = mAdapter.indexOfItemHolder(itemHolder);
+        if (position == RecyclerView.NO_POSITION) {
+            return;
+        }
+
+        remove(itemHolder);
+        if (mDirtyPositions.get(position)) {
+            mMergedCount++;
+        } else {
+            mDirtyPositions.set(position);
+        }
+        schedule();
+    }
+
+    /**
+     * Adds the payload to the changes of the item holder dispatched on the next frame.
+     *
+     * @param itemHolder the item holder that has changed
+     * @param payload    the payload of the change
+     */
+    void addPayload(ItemAdapter.ItemHolder<?> itemHolder, Object payload) {
+        if (!mDirtyPositions.isEmpty()) {
+            final int position = mAdapter.indexOfItemHolder(itemHolder);
+            if (position != RecyclerView.NO_POSITION && mDirtyPositions.get(position)) {
+                // the item is going to be fully re-bound anyway
+                mMergedCount++;
+                return;
+            }
+        }
+
+        PendingChange change = mPendingChanges.get(itemHolder);
+        if (change == null) {
+            change = obtainChange(itemHolder);
+            mPendingChanges.put(itemHolder, change);
+        } else {
+            mMergedCount++;
+        }
+        change.add(payload);
+        schedule();
+    }
+
+    /**
+     * Drops the pending changes of the item holder, e.g. because it is about to be fully re-bound.
+     *
+     * @param itemHolder the item holder
+     */
+    void remove(ItemAdapter.ItemHolder<?> itemHolder) {
+        final PendingChange change = mPendingChanges.remove(itemHolder);
+        if (change != null) {
+            recycleChange(change);
+        }
+    }
+
+    /**
+     * Dispatches the pending changes right away.
+     */
+    void flush() {
+        unschedule();
+        if (!mDirtyPositions.isEmpty()) {
+            dispatchDirtyPositions();
+        }
+        if (mPendingChanges.isEmpty()) {
+            return;
+        }
+
+        // snapshot the pending changes, notifications may trigger new ones; the scratch list is
+        // only replaced if a notification flushes again while it is in use
+        final boolean nested = mDispatching;
+        final ArrayList<PendingChange> changes = nested
+                ? new ArrayList<PendingChange>(mPendingChanges.size()) : mDispatchingChanges;
+        for (PendingChange change : mPendingChanges.values()) {
+            changes.add(change);
+        }
+        mPendingChanges.clear();
+        mDispatching = true;
+        try {
+            for (int i = 0, size = changes.size(); i < size; i++) {
+                final PendingChange change = changes.get(i);
+                dispatch(change);
+                recycleChange(change);
+            }
+        } finally {
+            changes.clear();
+            mDispatching = nested;
+        }
+    }
+
+    /**
+     * Drops the pending changes without dispatching them.
+     */
+    void cancel() {
+        unschedule();
+        mDirtyPositions.clear();
+        for (PendingChange change : mPendingChanges.values()) {
+            recycleChange(change);
+        }
+        mPendingChanges.clear();
+    }
+
+    /**
+     * @return the number of notifications saved by merging the changes of the same item holder
+     */
+    int getMergedCount() {
+        return mMergedCount;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        mScheduled = false;
+        flush();
+    }
+
+    private void schedule() {
+        if (!mScheduled) {
+            mScheduled = true;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    private void unschedule() {
+        if (mScheduled) {
+            mScheduled = false;
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+    }
+
+    private void dispatchDirtyPositions() {
+        final int itemCount = mAdapter.getItemCount();
+        int start = mDirtyPositions.nextSetBit(0);
+        while (start >= 0 && start < itemCount) {
+            final int end = Math.min(mDirtyPositions.nextClearBit(start), itemCount);
+            mAdapter.notifyItemRangeChanged(start, end - start);
+            start = mDirtyPositions.nextSetBit(end);
+        }
+        mDirtyPositions.clear();
+    }
+
+    private void dispatch(PendingChange change) {
+        // the position is resolved only now, the item may have moved or been removed meanwhile
+        final int position = mAdapter.indexOfItemHolder(change.mItemHolder);
+        if (position == RecyclerView.NO_POSITION) {
+            return;
+        }
+
+        if (change.mHasFields) {
+            mAdapter.notifyItemChanged(position, new ItemAdapter.FieldsChanged(change.mFields));
+        }
+        for (int i = 0, size = change.mPayloads.size(); i < size; i++) {
+            mAdapter.notifyItemChanged(position, change.mPayloads.get(i));
+        }
+    }
+
+    private PendingChange obtainChange(ItemAdapter.ItemHolder<?> itemHolder) {
+        final int size = mRecycledChanges.size();
+        final PendingChange change = size > 0
+                ? mRecycledChanges.remove(size - 1) : new PendingChange();
+        change.mItemHolder = itemHolder;
+        return change;
+    }
+
+    private void recycleChange(PendingChange change) {
+        change.clear();
+        if (mRecycledChanges.size() < MAX_RECYCLED_CHANGES) {
+            mRecycledChanges.add(change);
+        }
+    }
+
+    /**
+     * Merged payloads of an item holder.
+     */
+    private static final class PendingChange {
+
+        ItemAdapter.ItemHolder<?> mItemHolder;
+
+        boolean mHasFields;
+        int mFields;
+
+        /**
+         * Distinct payloads other than {@link ItemAdapter.FieldsChanged}.
+         */
+        final ArrayList<Object> mPayloads = new ArrayList<>(1);
+
+        void add(Object payload) {
+            if (payload instanceof ItemAdapter.FieldsChanged) {
+                mHasFields = true;
+                mFields |= ((ItemAdapter.FieldsChanged) payload).fields;
+            } else if (!mPayloads.contains(payload)) {
+                mPayloads.add(payload);
+            }
+        }
+
+        void clear() {
+            mItemHolder = null;
+            mHasFields = false;
+            mFields = 0;
+            mPayloads.clear();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2017 Sysdata Spa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sysdata.widget.accordion;
+
+import com.sysdata.widget.accordion.collections.LongIntHashMap;
+
+import java.util.ArrayList;
+
+/**
+ * Measured heights of the item views, keyed by item id, view type, expanded state and width of
+ * the list.
+ * <p/>
+ * Items are expected to be shown with a handful of view types and widths (e.g. portrait and
+ * landscape), hence a map of heights by item id is kept for each combination, bounded to
+ * {@link #MAX_HEIGHTS_PER_BUCKET} entries. The expanded state is part of the key since an item
+ * may be expanded and collapsed without changing view type, e.g. by a payload.
+ * <p/>
+ * Note: This class must be used on the main thread only.
+ */
+final class ItemHeightCache {
+
+    static final int UNKNOWN_HEIGHT = -1;
+
+    /**
+     * Maximum number of heights kept per view type, expanded state and width, a full bucket is
+     * cleared before growing again.
+     */
+    static final int MAX_HEIGHTS_PER_BUCKET = 4096;
+
+    private final ArrayList<Bucket> mBuckets = new ArrayList<>(2);
+
+    /**
+     * @return the height measured for the item with the given view type, expanded state and list
+     * width, or {@link #UNKNOWN_HEIGHT}
+     */
+    int get(long itemId, int viewType, boolean expanded, int width) {
+        final Bucket bucket = findBucket(viewType, expanded, width);
+        return bucket != null ? bucket.mHeights.get(itemId, UNKNOWN_HEIGHT) : UNKNOWN_HEIGHT;
+    }
+
+    void put(long itemId, int viewType, boolean expanded, int width, int height) {
+        Bucket bucket = findBucket(viewType, expanded, width);
+        if (bucket == null) {
+            bucket = new Bucket(viewType, expanded, width);
+            mBuckets.add(bucket);
+        } else if (bucket.mHeights.size() >= MAX_HEIGHTS_PER_BUCKET
+                && !bucket.mHeights.containsKey(itemId)) {
+            bucket.mHeights.clear();
+        }
+        bucket.mHeights.put(itemId, height);
+    }
+
+    /**
+     * Forgets the heights of the item in every view type, expanded state and width.
+     */
+    void invalidate(long itemId) {
+        for (int i = 0, size = mBuckets.size(); i < size; i++) {
+            mBuckets.get(i).mHeights.remove(itemId, UNKNOWN_HEIGHT);
+        }
+    }
+
+    void clear() {
+        mBuckets.clear();
+    }
+
+    private Bucket findBucket(int viewType, boolean expanded, int width) {
+        for (int i = 0, size = mBuckets.size(); i < size; i++) {
+            final Bucket bucket = mBuckets.get(i);
+            if (bucket.mViewType == viewType && bucket.mExpanded == expanded
+                    && bucket.mWidth == width) {
+                return bucket;
+            }
+        }
+        return null;
+    }
+
+    private static final class Bucket {
+
+        final int mViewType;
+        final boolean mExpanded;
+        final int mWidth;
+        final LongIntHashMap mHeights = new LongIntHashMap();
+
+        Bucket(int viewType, boolean expanded, int width) {
+            mViewType = viewType;
+            mExpanded = expanded;
+            mWidth = width;
+        }
+    }
+}
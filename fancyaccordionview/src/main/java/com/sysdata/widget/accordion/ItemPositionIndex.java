@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2017 Sysdata Spa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sysdata.widget.accordion;
+
+import android.support.v7.widget.RecyclerView;
+
+import com.sysdata.widget.accordion.collections.LongIntHashMap;
+
+import java.util.List;
+
+/**
+ * Incrementally maintained {@link ItemAdapter.ItemHolder#itemId} to adapter position index used by
+ * {@link ItemAdapter} to locate item holders in constant time.
+ * <p/>
+ * Structural changes only lower a watermark below which the indexed positions are known to be
+ * valid, the positions above it are re-indexed lazily on the next lookup that needs them. Every
+ * lookup is verified against the list, so a stale or duplicated id never yields a wrong position.
+ */
+final class ItemPositionIndex {
+
+    private final LongIntHashMap mPositionsById = new LongIntHashMap();
+
+    /**
+     * The indexed list of item holders.
+     */
+    private List<? extends ItemAdapter.ItemHolder> mItemHolders;
+
+    /**
+     * Number of leading positions of {@link #mItemHolders} whose index entries are up to date.
+     */
+    private int mIndexedCount;
+
+    /**
+     * Sets the list of item holders to index, dropping the current index.
+     *
+     * @param itemHolders the new list of item holders, may be {@code null}
+     */
+    void reset(List<? extends ItemAdapter.ItemHolder> itemHolders) {
+        mItemHolders = itemHolders;
+        mPositionsById.clear();
+        mIndexedCount = 0;
+        if (itemHolders != null) {
+            mPositionsById.ensureCapacity(itemHolders.size());
+        }
+    }
+
+    /**
+     * Called after an item holder has been inserted in the indexed list.
+     *
+     * @param position the position of the inserted item holder
+     */
+    void onItemInserted(int position) {
+        mIndexedCount = Math.min(mIndexedCount, position);
+    }
+
+    /**
+     * Called after an item holder has been removed from the indexed list.
+     *
+     * @param position the position the item holder was removed from
+     * @param itemId   the id of the removed item holder
+     */
+    void onItemRemoved(int position, long itemId) {
+        if (mPositionsById.get(itemId, RecyclerView.NO_POSITION) == position) {
+            mPositionsById.remove(itemId, RecyclerView.NO_POSITION);
+        }
+        mIndexedCount = Math.min(mIndexedCount, position);
+    }
+
+    /**
+     * @param itemHolder the item holder to look for
+     * @return the position of the item holder, or {@link RecyclerView#NO_POSITION} if the indexed
+     * list does not contain it
+     */
+    int indexOf(ItemAdapter.ItemHolder itemHolder) {
+        if (mItemHolders == null) {
+            return RecyclerView.NO_POSITION;
+        }
+
+        int position = mPositionsById.get(itemHolder.itemId, RecyclerView.NO_POSITION);
+        if (isAt(itemHolder, position)) {
+            return position;
+        }
+
+        if (mIndexedCount < mItemHolders.size()) {
+            indexRemaining();
+            position = mPositionsById.get(itemHolder.itemId, RecyclerView.NO_POSITION);
+            if (isAt(itemHolder, position)) {
+                return position;
+            }
+        }
+
+        // the id is either unknown, meaning the holder is not in the list, or it is shared with
+        // another holder, in which case only a scan can tell where this one is
+        return position == RecyclerView.NO_POSITION
+                ? RecyclerView.NO_POSITION : mItemHolders.indexOf(itemHolder);
+    }
+
+    /**
+     * @param itemId the id of the item holder to look for
+     * @return the position of an item holder with the given id, or
+     * {@link RecyclerView#NO_POSITION} if the indexed list does not contain one
+     */
+    int indexOfId(long itemId) {
+        if (mItemHolders == null) {
+            return RecyclerView.NO_POSITION;
+        }
+
+        int position = mPositionsById.get(itemId, RecyclerView.NO_POSITION);
+        if (hasIdAt(itemId, position)) {
+            return position;
+        }
+
+        if (mIndexedCount < mItemHolders.size()) {
+            indexRemaining();
+            position = mPositionsById.get(itemId, RecyclerView.NO_POSITION);
+            if (hasIdAt(itemId, position)) {
+                return position;
+            }
+        }
+        return RecyclerView.NO_POSITION;
+    }
+
+    private boolean isAt(ItemAdapter.ItemHolder itemHolder, int position) {
+        return position >= 0 && position < mItemHolders.size()
+                && mItemHolders.get(position) == itemHolder;
+    }
+
+    private boolean hasIdAt(long itemId, int position) {
+        return position >= 0 && position < mItemHolders.size()
+                && mItemHolders.get(position).itemId == itemId;
+    }
+
+    private void indexRemaining() {
+        final List<? extends ItemAdapter.ItemHolder> itemHolders = mItemHolders;
+        final int size = itemHolders.size();
+        for (int position = mIndexedCount; position < size; position++) {
+            mPositionsById.put(itemHolders.get(position).itemId, position);
+        }
+        mIndexedCount = size;
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2017 Sysdata Spa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sysdata.widget.accordion;
+
+import android.support.v4.view.AsyncLayoutInflater;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.ArrayList;
+
+/**
+ * Inflates item views on a background thread ahead of need and keeps a few of them per view type,
+ * ready to be handed to an {@link ItemAdapter.ItemViewHolder.InflatedViewFactory}.
+ * <p/>
+ * Note: This class must be used on the main thread only.
+ */
+final class ItemViewPreinflater implements AsyncLayoutInflater.OnInflateFinishedListener {
+
+    /**
+     * Maximum number of item views inflated ahead of time per view type.
+     */
+    static final int MAX_VIEWS_PER_TYPE = 2;
+
+    private final ViewGroup mParent;
+
+    private AsyncLayoutInflater mInflater;
+
+    /**
+     * Item views ready to be used, keyed by view type.
+     */
+    private final SparseArray<ArrayList<View>> mViewsByType = new SparseArray<>();
+
+    /**
+     * Number of item views being inflated, keyed by view type.
+     */
+    private final SparseIntArray mInflatingCounts = new SparseIntArray();
+
+    private boolean mEnabled = true;
+
+    private int mHitCount;
+    private int mMissCount;
+
+    /**
+     * @param parent the {@code ViewGroup} that the inflated item views will be attached, used to
+     *               generate their layout params
+     */
+    ItemViewPreinflater(ViewGroup parent) {
+        mParent = parent;
+    }
+
+    /**
+     * Makes sure the given number of item views of the view type are inflated or being inflated.
+     *
+     * @param viewType the layout id of the item views
+     * @param count    the number of item views to keep ready, capped to
+     *                 {@link #MAX_VIEWS_PER_TYPE}
+     */
+    void request(int viewType, int count) {
+        if (!mEnabled) {
+            return;
+        }
+
+        final ArrayList<View> views = mViewsByType.get(viewType);
+        int available = mInflatingCounts.get(viewType) + (views == null ? 0 : views.size());
+        final int target = Math.min(count, MAX_VIEWS_PER_TYPE);
+        if (available >= target) {
+            return;
+        }
+
+        if (mInflater == null) {
+            mInflater = new AsyncLayoutInflater(mParent.getContext());
+        }
+        mInflatingCounts.put(viewType, mInflatingCounts.get(viewType) + target - available);
+        for (; available < target; available++) {
+            mInflater.inflate(viewType, mParent, this);
+        }
+    }
+
+    /**
+     * @param viewType the layout id of the item view
+     * @return an item view inflated ahead of time, or {@code null} if none is ready
+     */
+    View obtain(int viewType) {
+        final ArrayList<View> views = mViewsByType.get(viewType);
+        if (views == null || views.isEmpty()) {
+            mMissCount++;
+            return null;
+        }
+        mHitCount++;
+        return views.remove(views.size() - 1);
+    }
+
+    /**
+     * Enables or disables the inflation, dropping the item views ready to be used when disabled.
+     */
+    void setEnabled(boolean enabled) {
+        mEnabled = enabled;
+        if (!enabled) {
+            mViewsByType.clear();
+        }
+    }
+
+    /**
+     * @return the number of item views served by {@link #obtain(int)}
+     */
+    int getHitCount() {
+        return mHitCount;
+    }
+
+    /**
+     * @return the number of {@link #obtain(int)} calls that found no item view ready
+     */
+    int getMissCount() {
+        return mMissCount;
+    }
+
+    @Override
+    public void onInflateFinished(View view, int resid, ViewGroup parent) {
+        mInflatingCounts.put(resid, Math.max(mInflatingCounts.get(resid) - 1, 0));
+        if (!mEnabled) {
+            return;
+        }
+
+        ArrayList<View> views = mViewsByType.get(resid);
+        if (views == null) {
+            views = new ArrayList<>(MAX_VIEWS_PER_TYPE);
+            mViewsByType.put(resid, views);
+        }
+        if (views.size() < MAX_VIEWS_PER_TYPE) {
+            views.add(view);
+        }
+    }
+}
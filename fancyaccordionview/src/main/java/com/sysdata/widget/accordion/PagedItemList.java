@@ -0,0 +1,506 @@
+/*
+ * Copyright (C) 2017 Sysdata Spa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sysdata.widget.accordion;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.v7.widget.RecyclerView;
+import android.util.Log;
+
+import com.sysdata.widget.accordion.collections.LongIntHashMap;
+
+import java.util.AbstractList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.Executor;
+
+/**
+ * List of item holders loaded in fixed-size pages from a {@link DataSource}, to be set on an
+ * {@link ItemAdapter} in place of a fully materialized list when the dataset is too large to
+ * build every item holder up front.
+ * <p/>
+ * The list reports the total count of the data source from the start, so that scrollbars and
+ * fast scrolling work without materializing any item holder. Pages are loaded on an
+ * {@link Executor} as the bound positions approach them, and the pages farthest from the bound
+ * positions are dropped once more than {@link #getMaxLoadedPages()} are loaded.
+ * <p/>
+ * Until its page is loaded, the adapter shows a position with a lightweight placeholder view
+ * ({@code R.layout.accordion_placeholder}) bound to no item holder. When the page arrives the
+ * placeholders are replaced in place by a change carrying an {@link ItemAdapter.PlaceholderLoaded}
+ * payload. With placeholders disabled, a page needed before being loaded in the background is
+ * loaded on the main thread instead.
+ * <p/>
+ * Item holders of dropped pages are created again by the data source when their page is loaded
+ * again, so any per-instance state must be tracked elsewhere, e.g. the expanded items of a
+ * {@link FancyAccordionView} are tracked by id.
+ * <p/>
+ * Note: The list is read-only and must be used on the main thread only. It can be set on a single
+ * adapter at a time.
+ *
+ * @param <T> the item holder type
+ */
+public final class PagedItemList<T extends ItemAdapter.ItemHolder> extends AbstractList<T>
+        implements RandomAccess {
+
+    private static final String TAG = "PagedItemList";
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int DEFAULT_MAX_LOADED_PAGES = 10;
+
+    /**
+     * Minimum number of loaded pages: the page of the bound positions and its neighbours.
+     */
+    private static final int MIN_LOADED_PAGES = 3;
+
+    private final DataSource<T> mDataSource;
+    private final Executor mExecutor;
+    private final int mPageSize;
+    private final int mMaxLoadedPages;
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    private Callback<T> mCallback;
+
+    /**
+     * Incremented whenever the loaded pages are dropped, used to discard the stale loads.
+     */
+    private int mGeneration;
+
+    private int mCount;
+
+    private List<T>[] mPages;
+    private int mLoadedPageCount;
+    private final BitSet mLoadedPages = new BitSet();
+    private final BitSet mLoadingPages = new BitSet();
+
+    /**
+     * Pages that have been dropped at least once, whose positions may still be bound to the item
+     * holders created by a previous load.
+     */
+    private final BitSet mDroppedPages = new BitSet();
+
+    /**
+     * Positions of the item holders of the loaded pages, by {@link ItemAdapter.ItemHolder#itemId}.
+     */
+    private final LongIntHashMap mPositionsById = new LongIntHashMap();
+
+    /**
+     * Pages not loaded yet whose positions have been shown as placeholders.
+     */
+    private final BitSet mPlaceholderPages = new BitSet();
+
+    private boolean mPlaceholdersEnabled = true;
+
+    private int mLastBoundPage;
+
+    /**
+     * Creates a list loading pages of {@link #DEFAULT_PAGE_SIZE} item holders and keeping up to
+     * {@link #DEFAULT_MAX_LOADED_PAGES} pages.
+     *
+     * @param dataSource the source of the item holders
+     * @param executor   the {@link Executor} on which the pages are loaded
+     */
+    public PagedItemList(@NonNull DataSource<T> dataSource, @NonNull Executor executor) {
+        this(dataSource, executor, DEFAULT_PAGE_SIZE, DEFAULT_MAX_LOADED_PAGES);
+    }
+
+    /**
+     * @param dataSource     the source of the item holders
+     * @param executor       the {@link Executor} on which the pages are loaded
+     * @param pageSize       the number of item holders per page, which should exceed the number of
+     *                       items visible at once
+     * @param maxLoadedPages the memory budget, as the maximum number of pages kept loaded, at
+     *                       least 3
+     */
+    public PagedItemList(@NonNull DataSource<T> dataSource, @NonNull Executor executor,
+                         int pageSize, int maxLoadedPages) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("pageSize must be at least 1: " + pageSize);
+        }
+        if (maxLoadedPages < MIN_LOADED_PAGES) {
+            throw new IllegalArgumentException("maxLoadedPages must be at least "
+                    + MIN_LOADED_PAGES + ": " + maxLoadedPages);
+        }
+        mDataSource = dataSource;
+        mExecutor = executor;
+        mPageSize = pageSize;
+        mMaxLoadedPages = maxLoadedPages;
+    }
+
+    public int getPageSize() {
+        return mPageSize;
+    }
+
+    public int getMaxLoadedPages() {
+        return mMaxLoadedPages;
+    }
+
+    /**
+     * Enables or disables the placeholders shown for the positions whose page is not loaded yet,
+     * enabled by default. Must be called before the list is set on an adapter.
+     *
+     * @param placeholdersEnabled {@code false} to load the pages needed by the
+     *                            {@link RecyclerView} on the main thread instead
+     */
+    public void setPlaceholdersEnabled(boolean placeholdersEnabled) {
+        if (mCallback != null) {
+            throw new IllegalStateException("The list is already set on an adapter");
+        }
+        mPlaceholdersEnabled = placeholdersEnabled;
+    }
+
+    public boolean isPlaceholdersEnabled() {
+        return mPlaceholdersEnabled;
+    }
+
+    /**
+     * @return the number of pages currently loaded
+     */
+    public int getLoadedPageCount() {
+        return mLoadedPageCount;
+    }
+
+    @Override
+    public int size() {
+        return mCount;
+    }
+
+    /**
+     * Returns the item holder at the given position, loading its page on the calling thread if
+     * it is not loaded yet.
+     */
+    @Override
+    public T get(int position) {
+        if (position < 0 || position >= mCount) {
+            throw new IndexOutOfBoundsException("Index: " + position + ", size: " + mCount);
+        }
+
+        final int page = position / mPageSize;
+        List<T> holders = mPages[page];
+        if (holders == null) {
+            // the page is needed right now, hence it is where the bound positions are heading
+            mLastBoundPage = page;
+            final int count = getPageCount(page);
+            holders = mDataSource.loadPage(page * mPageSize, count);
+            if (!hasPageSize(holders, count)) {
+                // thrown to the caller, unlike the pages loaded in the background
+                throw new IllegalStateException("Page at " + page * mPageSize + " has "
+                        + (holders != null ? holders.size() : 0) + " items instead of " + count);
+            }
+            final boolean placeholders = mPlaceholderPages.get(page);
+            final boolean replaced = placeholders || mDroppedPages.get(page);
+            onPageLoaded(page, holders);
+            if (replaced) {
+                // the RecyclerView may be computing a layout, notify the replacement later
+                postPageReplaced(page, placeholders);
+            }
+        }
+        return holders.get(position - page * mPageSize);
+    }
+
+    /**
+     * @param position the position of the item
+     * @return {@code true} if the position is to be shown as a placeholder, since its page is not
+     * loaded
+     */
+    boolean isPlaceholder(int position) {
+        return mPlaceholdersEnabled && mPages[position / mPageSize] == null;
+    }
+
+    /**
+     * Called when a placeholder is bound at the position, loads its page in the background if it
+     * is not loading yet.
+     *
+     * @param position the position of the placeholder
+     */
+    void onPlaceholderBound(int position) {
+        final int page = position / mPageSize;
+        if (mPages[page] != null) {
+            // loaded after the view type of the position was queried
+            postPageReplaced(page, true);
+            return;
+        }
+        mPlaceholderPages.set(page);
+        if (!mLoadingPages.get(page)) {
+            loadPageAsync(page);
+        }
+    }
+
+    /**
+     * @param position the position of the placeholder
+     * @return the stable id of the placeholder, distinct from the ids of the other placeholders
+     */
+    long getPlaceholderId(int position) {
+        return Long.MIN_VALUE + position;
+    }
+
+    /**
+     * @return the item holder at the given position if its page is loaded, {@code null} otherwise
+     */
+    T peek(int position) {
+        if (position < 0 || position >= mCount) {
+            return null;
+        }
+        final int page = position / mPageSize;
+        final List<T> holders = mPages[page];
+        return holders != null ? holders.get(position - page * mPageSize) : null;
+    }
+
+    /**
+     * @param itemHolder the item holder to look for
+     * @return the position of the item holder, or {@link RecyclerView#NO_POSITION} if it is not
+     * part of a loaded page
+     */
+    int indexOfLoaded(ItemAdapter.ItemHolder itemHolder) {
+        final int position = indexOfLoadedId(itemHolder.itemId);
+        return peek(position) == itemHolder ? position : RecyclerView.NO_POSITION;
+    }
+
+    /**
+     * @param itemId the id to look for
+     * @return the position of an item holder with the given id, or
+     * {@link RecyclerView#NO_POSITION} if no loaded page contains one
+     */
+    int indexOfLoadedId(long itemId) {
+        return mPositionsById.get(itemId, RecyclerView.NO_POSITION);
+    }
+
+    /**
+     * Called when the item at the given position is bound, loads in the background the pages
+     * around it that are not loaded yet.
+     *
+     * @param position the bound position
+     */
+    void loadAround(int position) {
+        final int page = position / mPageSize;
+        mLastBoundPage = page;
+        final int lastPage = (mCount - 1) / mPageSize;
+        for (int p = Math.max(page - 1, 0), end = Math.min(page + 1, lastPage); p <= end; p++) {
+            if (mPages[p] == null && !mLoadingPages.get(p)) {
+                loadPageAsync(p);
+            }
+        }
+    }
+
+    /**
+     * Binds the list to the adapter, reading the total count of the data source.
+     */
+    @SuppressWarnings("unchecked")
+    void attach(Callback<T> callback) {
+        if (mCallback != null) {
+            throw new IllegalStateException("The list is already set on an adapter");
+        }
+        mCallback = callback;
+        mCount = Math.max(mDataSource.getCount(), 0);
+        mPages = new List[(mCount + mPageSize - 1) / mPageSize];
+    }
+
+    /**
+     * Unbinds the list from its adapter, dropping all the loaded pages.
+     */
+    void detach() {
+        for (int page = mLoadedPages.nextSetBit(0); page >= 0; page = mLoadedPages.nextSetBit(page + 1)) {
+            dropPage(page);
+        }
+        mGeneration++;
+        mLoadingPages.clear();
+        mDroppedPages.clear();
+        mPlaceholderPages.clear();
+        mCallback = null;
+        mCount = 0;
+        mPages = null;
+    }
+
+    private int getPageCount(int page) {
+        return Math.min(mPageSize, mCount - page * mPageSize);
+    }
+
+    private void loadPageAsync(final int page) {
+        mLoadingPages.set(page);
+        final int generation = mGeneration;
+        final int start = page * mPageSize;
+        final int count = getPageCount(page);
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                List<T> holders = null;
+                try {
+                    holders = mDataSource.loadPage(start, count);
+                } catch (RuntimeException e) {
+                    Log.w(TAG, "Failed to load page at " + start, e);
+                }
+                if (holders != null && !hasPageSize(holders, count)) {
+                    // dropped like a failed load, the page is requested again when bound
+                    Log.w(TAG, "Dropped page at " + start + ", it has " + holders.size()
+                            + " items instead of " + count);
+                    holders = null;
+                }
+
+                final List<T> loadedHolders = holders;
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onPageLoadFinished(generation, page, loadedHolders);
+                    }
+                });
+            }
+        });
+    }
+
+    private void onPageLoadFinished(int generation, int page, List<T> holders) {
+        if (generation != mGeneration) {
+            return;
+        }
+        mLoadingPages.clear(page);
+        if (holders == null || mPages[page] != null) {
+            return;
+        }
+
+        // the page may replace placeholders or, if loaded again, item holders of bound positions
+        final boolean placeholders = mPlaceholderPages.get(page);
+        final boolean replaced = placeholders || mDroppedPages.get(page);
+        onPageLoaded(page, holders);
+        if (replaced && mPages[page] != null) {
+            mCallback.onPageReplaced(page * mPageSize, holders.size(), placeholders);
+        }
+    }
+
+    private void postPageReplaced(final int page, final boolean placeholders) {
+        final int generation = mGeneration;
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (generation == mGeneration && mPages[page] != null) {
+                    mCallback.onPageReplaced(page * mPageSize, mPages[page].size(), placeholders);
+                }
+            }
+        });
+    }
+
+    private static boolean hasPageSize(List<?> holders, int count) {
+        return holders != null && holders.size() == count;
+    }
+
+    private void onPageLoaded(int page, List<T> holders) {
+        final int start = page * mPageSize;
+        mPages[page] = holders;
+        mPlaceholderPages.clear(page);
+        mLoadedPages.set(page);
+        mLoadedPageCount++;
+        for (int i = 0, size = holders.size(); i < size; i++) {
+            mPositionsById.put(holders.get(i).itemId, start + i);
+        }
+        mCallback.onPageLoaded(start, holders);
+
+        dropDistantPages(page);
+    }
+
+    /**
+     * Drops the pages farthest from the last bound page until the memory budget is met, never
+     * dropping the just loaded page nor the ones next to the last bound page.
+     */
+    private void dropDistantPages(int loadedPage) {
+        while (mLoadedPageCount > mMaxLoadedPages) {
+            int farthestPage = -1;
+            int farthestDistance = 1;
+            for (int page = mLoadedPages.nextSetBit(0); page >= 0; page = mLoadedPages.nextSetBit(page + 1)) {
+                final int distance = Math.abs(page - mLastBoundPage);
+                if (page != loadedPage && distance > farthestDistance) {
+                    farthestPage = page;
+                    farthestDistance = distance;
+                }
+            }
+            if (farthestPage < 0) {
+                return;
+            }
+            dropPage(farthestPage);
+            mDroppedPages.set(farthestPage);
+        }
+    }
+
+    private void dropPage(int page) {
+        final List<T> holders = mPages[page];
+        mPages[page] = null;
+        mLoadedPages.clear(page);
+        mLoadedPageCount--;
+
+        final int start = page * mPageSize;
+        for (int i = 0, size = holders.size(); i < size; i++) {
+            final long itemId = holders.get(i).itemId;
+            if (mPositionsById.get(itemId, RecyclerView.NO_POSITION) == start + i) {
+                mPositionsById.remove(itemId, RecyclerView.NO_POSITION);
+            }
+        }
+        mCallback.onPageDropped(start, holders);
+    }
+
+    /**
+     * Source of the item holders of a {@link PagedItemList}.
+     *
+     * @param <T> the item holder type
+     */
+    public interface DataSource<T extends ItemAdapter.ItemHolder> {
+        /**
+         * Invoked on the main thread when the list is set on an adapter, should be fast.
+         *
+         * @return the total number of items
+         */
+        int getCount();
+
+        /**
+         * Invoked on the {@link Executor} of the list, or on the main thread when a page is needed
+         * before being loaded in the background.
+         *
+         * @param startPosition the position of the first item of the page
+         * @param count         the number of items of the page
+         * @return exactly {@code count} new item holders, typically wrapping the items loaded from
+         * a database or a network cache
+         */
+        List<T> loadPage(int startPosition, int count);
+    }
+
+    /**
+     * Callback used by the {@link ItemAdapter} the list is set on to track the loaded item
+     * holders.
+     */
+    interface Callback<T extends ItemAdapter.ItemHolder> {
+        /**
+         * @param startPosition the position of the first item holder of the page
+         * @param itemHolders   the item holders of the page
+         */
+        void onPageLoaded(int startPosition, List<T> itemHolders);
+
+        /**
+         * Called after a page has been loaded in place of views that may still be bound, outside
+         * of any layout pass.
+         *
+         * @param startPosition the position of the first item holder of the page
+         * @param itemCount     the number of item holders of the page
+         * @param placeholders  {@code true} if the page replaces placeholders, {@code false} if
+         *                      it replaces the item holders of a previous load
+         */
+        void onPageReplaced(int startPosition, int itemCount, boolean placeholders);
+
+        /**
+         * @param startPosition the position of the first item holder of the page
+         * @param itemHolders   the item holders of the page
+         */
+        void onPageDropped(int startPosition, List<T> itemHolders);
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2017 Sysdata Spa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sysdata.widget.accordion;
+
+import android.view.LayoutInflater;
+import android.view.ViewGroup;
+
+/**
+ * View holder of the placeholders shown by {@link ItemAdapter} for the items of a
+ * {@link PagedItemList} whose page is not loaded yet. It is never bound to an item holder.
+ */
+final class PlaceholderViewHolder extends ItemAdapter.ItemViewHolder<ItemAdapter.ItemHolder> {
+
+    /**
+     * View type of the placeholders, the layout id as for the other item views.
+     */
+    static final int VIEW_TYPE = R.layout.accordion_placeholder;
+
+    private PlaceholderViewHolder(ViewGroup parent) {
+        super(LayoutInflater.from(parent.getContext()).inflate(VIEW_TYPE, parent, false));
+    }
+
+    static PlaceholderViewHolder create(ViewGroup parent) {
+        return new PlaceholderViewHolder(parent);
+    }
+
+    @Override
+    protected void onBindItemView(ItemAdapter.ItemHolder itemHolder) {
+        // nothing to bind
+    }
+
+    @Override
+    protected void onRecycleItemView() {
+        // nothing to release
+    }
+
+    @Override
+    protected ItemAdapter.ItemViewHolder.Factory getViewHolderFactory() {
+        return null;
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2017 Sysdata Spa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sysdata.widget.accordion;
+
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.support.v7.widget.RecyclerView;
+import android.util.SparseIntArray;
+
+/**
+ * Creates item view holders while the main thread is idle and seeds them into the
+ * {@link RecyclerView.RecycledViewPool} of a {@link RecyclerView}, so that the first bind of each
+ * view type does not pay for the layout inflation.
+ * <p/>
+ * A single view holder is created per idle callback to keep each slice of work shorter than a
+ * frame.
+ */
+final class ViewHolderPrewarmer implements MessageQueue.IdleHandler {
+
+    /**
+     * Default maximum number of recycled views per view type of
+     * {@link RecyclerView.RecycledViewPool}.
+     */
+    static final int DEFAULT_MAX_RECYCLED_VIEWS = 5;
+
+    private final RecyclerView mRecyclerView;
+
+    /**
+     * Number of view holders still to create, keyed by view type.
+     */
+    private final SparseIntArray mPendingCounts = new SparseIntArray();
+
+    private boolean mScheduled;
+
+    ViewHolderPrewarmer(RecyclerView recyclerView) {
+        mRecyclerView = recyclerView;
+    }
+
+    /**
+     * Requests the given number of view holders of the view type to be available in the pool,
+     * raising the pool capacity for the view type if needed.
+     *
+     * @param viewType the view type of the view holders to create
+     * @param count    the number of view holders to create
+     */
+    void request(int viewType, int count) {
+        if (count <= 0) {
+            return;
+        }
+
+        final int target = Math.max(count, mPendingCounts.get(viewType));
+        // the pool silently drops the view holders exceeding its capacity
+        mRecyclerView.getRecycledViewPool()
+                .setMaxRecycledViews(viewType, Math.max(target, DEFAULT_MAX_RECYCLED_VIEWS));
+        mPendingCounts.put(viewType, target);
+    }
+
+    /**
+     * Starts creating the requested view holders the next time the main thread is idle.
+     */
+    void schedule() {
+        if (!mScheduled && mPendingCounts.size() > 0) {
+            mScheduled = true;
+            Looper.myQueue().addIdleHandler(this);
+        }
+    }
+
+    /**
+     * Stops creating view holders and forgets the pending requests.
+     */
+    void cancel() {
+        mPendingCounts.clear();
+        if (mScheduled) {
+            mScheduled = false;
+            Looper.myQueue().removeIdleHandler(this);
+        }
+    }
+
+    /**
+     * @return {@code true} if some requested view holders are still to be created
+     */
+    boolean isPending() {
+        return mPendingCounts.size() > 0;
+    }
+
+    @Override
+    public boolean queueIdle() {
+        final RecyclerView.Adapter adapter = mRecyclerView.getAdapter();
+        if (adapter == null || mPendingCounts.size() == 0) {
+            mScheduled = false;
+            return false;
+        }
+
+        final int viewType = mPendingCounts.keyAt(0);
+        final int remaining = mPendingCounts.valueAt(0) - 1;
+        if (remaining > 0) {
+            mPendingCounts.put(viewType, remaining);
+        } else {
+            mPendingCounts.delete(viewType);
+        }
+
+        // createViewHolder() also tags the view holder with its view type, as required by the pool
+        mRecyclerView.getRecycledViewPool()
+                .putRecycledView(adapter.createViewHolder(mRecyclerView, viewType));
+
+        mScheduled = mPendingCounts.size() > 0;
+        return mScheduled;
+    }
+}
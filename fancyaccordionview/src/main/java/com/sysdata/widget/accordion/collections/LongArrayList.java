@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2017 Sysdata Spa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sysdata.widget.accordion.collections;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of primitive {@code long} values, avoiding the boxing of a {@code List<Long>}.
+ * <p/>
+ * Note: This class is not thread-safe and is meant for internal use by the library.
+ */
+public final class LongArrayList {
+
+    private static final int MIN_CAPACITY = 4;
+
+    private long[] mValues;
+    private int mSize;
+
+    public LongArrayList() {
+        mValues = new long[MIN_CAPACITY];
+    }
+
+    /**
+     * @return the number of values in this list
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * @return {@code true} if this list contains no values
+     */
+    public boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    /**
+     * @param index the index of the value
+     * @return the value at the given index
+     */
+    public long get(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + mSize);
+        }
+        return mValues[index];
+    }
+
+    /**
+     * Appends the value to the end of this list.
+     *
+     * @param value the value to add
+     */
+    public void add(long value) {
+        if (mSize == mValues.length) {
+            mValues = Arrays.copyOf(mValues, mSize << 1);
+        }
+        mValues[mSize++] = value;
+    }
+
+    /**
+     * Removes all the values.
+     */
+    public void clear() {
+        mSize = 0;
+    }
+
+    /**
+     * @return a new array holding the values in order
+     */
+    public long[] toArray() {
+        return Arrays.copyOf(mValues, mSize);
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright (C) 2017 Sysdata Spa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sysdata.widget.accordion.collections;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash set of primitive {@code long} values, the set counterpart of
+ * {@link LongIntHashMap}.
+ * <p/>
+ * Unlike a {@code HashSet<Long>} no boxing or entry allocation happens on lookups and updates.
+ * Removed slots are compacted by backward shifting, so no tombstones are left behind.
+ * <p/>
+ * Note: This class is not thread-safe and is meant for internal use by the library.
+ */
+public final class LongHashSet {
+
+    /**
+     * Value used to mark a free slot; the real {@code 0} value is tracked out of the table.
+     */
+    private static final long FREE_VALUE = 0L;
+
+    private static final int MIN_CAPACITY = 8;
+
+    /**
+     * Maximum fill factor before the table is doubled.
+     */
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] mValues;
+
+    private boolean mHasZeroValue;
+
+    private int mSize;
+    private int mMask;
+    private int mResizeThreshold;
+
+    public LongHashSet() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize the number of values the set should hold without resizing
+     */
+    public LongHashSet(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    /**
+     * @return the number of values in this set
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * @return {@code true} if this set contains no values
+     */
+    public boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    /**
+     * @param value the value to look for
+     * @return {@code true} if this set contains the value
+     */
+    public boolean contains(long value) {
+        if (value == FREE_VALUE) {
+            return mHasZeroValue;
+        }
+        return mValues[indexOf(value)] != FREE_VALUE;
+    }
+
+    /**
+     * @param value the value to add
+     * @return {@code true} if the value was not in this set
+     */
+    public boolean add(long value) {
+        if (value == FREE_VALUE) {
+            if (mHasZeroValue) {
+                return false;
+            }
+            mHasZeroValue = true;
+            mSize++;
+            return true;
+        }
+
+        final int index = indexOf(value);
+        if (mValues[index] != FREE_VALUE) {
+            return false;
+        }
+        mValues[index] = value;
+        if (++mSize > mResizeThreshold) {
+            rehash(mValues.length << 1);
+        }
+        return true;
+    }
+
+    /**
+     * @param value the value to remove
+     * @return {@code true} if the value was in this set
+     */
+    public boolean remove(long value) {
+        if (value == FREE_VALUE) {
+            if (!mHasZeroValue) {
+                return false;
+            }
+            mHasZeroValue = false;
+            mSize--;
+            return true;
+        }
+
+        int index = indexOf(value);
+        if (mValues[index] == FREE_VALUE) {
+            return false;
+        }
+        mSize--;
+
+        // shift back the values of the same probe sequence so that lookups never hit a hole
+        int next = (index + 1) & mMask;
+        while (mValues[next] != FREE_VALUE) {
+            final int slot = slotOf(mValues[next]);
+            if (index <= next ? (index >= slot || slot > next) : (index >= slot && slot > next)) {
+                mValues[index] = mValues[next];
+                index = next;
+            }
+            next = (next + 1) & mMask;
+        }
+        mValues[index] = FREE_VALUE;
+        return true;
+    }
+
+    /**
+     * Removes all the values, keeping the allocated table.
+     */
+    public void clear() {
+        if (mSize > 0) {
+            Arrays.fill(mValues, FREE_VALUE);
+            mHasZeroValue = false;
+            mSize = 0;
+        }
+    }
+
+    /**
+     * Makes sure the set can hold the given number of values without resizing.
+     *
+     * @param expectedSize the number of values the set should hold
+     */
+    public void ensureCapacity(int expectedSize) {
+        final int capacity = tableSizeFor(expectedSize);
+        if (capacity > mValues.length) {
+            rehash(capacity);
+        }
+    }
+
+    /**
+     * @return a new array holding the values, in no particular order
+     */
+    public long[] toArray() {
+        final long[] array = new long[mSize];
+        int count = 0;
+        if (mHasZeroValue) {
+            array[count++] = FREE_VALUE;
+        }
+        for (int i = 0; i < mValues.length && count < mSize; i++) {
+            if (mValues[i] != FREE_VALUE) {
+                array[count++] = mValues[i];
+            }
+        }
+        return array;
+    }
+
+    /**
+     * @return the slot holding the value or the free slot where the value would be inserted
+     */
+    private int indexOf(long value) {
+        int index = slotOf(value);
+        long current;
+        while ((current = mValues[index]) != FREE_VALUE && current != value) {
+            index = (index + 1) & mMask;
+        }
+        return index;
+    }
+
+    private int slotOf(long value) {
+        final long hash = value * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mMask;
+    }
+
+    private void rehash(int capacity) {
+        final long[] oldValues = mValues;
+        allocate(capacity);
+        for (int i = 0; i < oldValues.length; i++) {
+            final long value = oldValues[i];
+            if (value != FREE_VALUE) {
+                mValues[indexOf(value)] = value;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        mValues = new long[capacity];
+        mMask = capacity - 1;
+        mResizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        final int required = (int) Math.ceil(Math.max(expectedSize, 1) / LOAD_FACTOR);
+        int capacity = MIN_CAPACITY;
+        while (capacity < required && capacity < (1 << 30)) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright (C) 2017 Sysdata Spa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sysdata.widget.accordion.collections;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from primitive {@code long} keys to primitive {@code int} values.
+ * <p/>
+ * Unlike a {@code HashMap<Long, Integer>} no boxing or entry allocation happens on lookups and
+ * updates, and unlike a {@code LongSparseArray} every operation runs in expected constant time.
+ * Removed slots are compacted by backward shifting, so no tombstones are left behind.
+ * <p/>
+ * Note: This class is not thread-safe and is meant for internal use by the library.
+ */
+public final class LongIntHashMap {
+
+    /**
+     * Key used to mark a free slot; the real {@code 0} key is stored out of the tables.
+     */
+    private static final long FREE_KEY = 0L;
+
+    private static final int MIN_CAPACITY = 8;
+
+    /**
+     * Maximum fill factor before the tables are doubled.
+     */
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] mKeys;
+    private int[] mValues;
+
+    private boolean mHasZeroKey;
+    private int mZeroValue;
+
+    private int mSize;
+    private int mMask;
+    private int mResizeThreshold;
+
+    public LongIntHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize the number of mappings the map should hold without resizing
+     */
+    public LongIntHashMap(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    /**
+     * @return the number of key-value mappings in this map
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * @return {@code true} if this map contains no mappings
+     */
+    public boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    /**
+     * @param key the key to look for
+     * @return {@code true} if this map contains a mapping for the given key
+     */
+    public boolean containsKey(long key) {
+        if (key == FREE_KEY) {
+            return mHasZeroKey;
+        }
+        return mKeys[indexOf(key)] != FREE_KEY;
+    }
+
+    /**
+     * @param key          the key whose value is to be returned
+     * @param defaultValue the value returned when no mapping exists for the key
+     * @return the value mapped to the key, or {@code defaultValue} if there is none
+     */
+    public int get(long key, int defaultValue) {
+        if (key == FREE_KEY) {
+            return mHasZeroKey ? mZeroValue : defaultValue;
+        }
+        final int index = indexOf(key);
+        return mKeys[index] != FREE_KEY ? mValues[index] : defaultValue;
+    }
+
+    /**
+     * Maps the key to the value, replacing any previous mapping for the key.
+     *
+     * @param key   the key
+     * @param value the value to associate to the key
+     */
+    public void put(long key, int value) {
+        if (key == FREE_KEY) {
+            if (!mHasZeroKey) {
+                mHasZeroKey = true;
+                mSize++;
+            }
+            mZeroValue = value;
+            return;
+        }
+
+        final int index = indexOf(key);
+        if (mKeys[index] == FREE_KEY) {
+            mKeys[index] = key;
+            mValues[index] = value;
+            if (++mSize > mResizeThreshold) {
+                rehash(mKeys.length << 1);
+            }
+        } else {
+            mValues[index] = value;
+        }
+    }
+
+    /**
+     * Removes the mapping for the key, if present.
+     *
+     * @param key          the key whose mapping is to be removed
+     * @param defaultValue the value returned when no mapping exists for the key
+     * @return the value previously mapped to the key, or {@code defaultValue} if there was none
+     */
+    public int remove(long key, int defaultValue) {
+        if (key == FREE_KEY) {
+            if (!mHasZeroKey) {
+                return defaultValue;
+            }
+            mHasZeroKey = false;
+            mSize--;
+            return mZeroValue;
+        }
+
+        int index = indexOf(key);
+        if (mKeys[index] == FREE_KEY) {
+            return defaultValue;
+        }
+        final int removed = mValues[index];
+        mSize--;
+
+        // shift back the entries of the same probe sequence so that lookups never hit a hole
+        int next = (index + 1) & mMask;
+        while (mKeys[next] != FREE_KEY) {
+            final int slot = slotOf(mKeys[next]);
+            if (index <= next ? (index >= slot || slot > next) : (index >= slot && slot > next)) {
+                mKeys[index] = mKeys[next];
+                mValues[index] = mValues[next];
+                index = next;
+            }
+            next = (next + 1) & mMask;
+        }
+        mKeys[index] = FREE_KEY;
+        return removed;
+    }
+
+    /**
+     * Removes all the mappings, keeping the allocated tables.
+     */
+    public void clear() {
+        if (mSize > 0) {
+            Arrays.fill(mKeys, FREE_KEY);
+            mHasZeroKey = false;
+            mSize = 0;
+        }
+    }
+
+    /**
+     * Makes sure the map can hold the given number of mappings without resizing.
+     *
+     * @param expectedSize the number of mappings the map should hold
+     */
+    public void ensureCapacity(int expectedSize) {
+        final int capacity = tableSizeFor(expectedSize);
+        if (capacity > mKeys.length) {
+            rehash(capacity);
+        }
+    }
+
+    /**
+     * @return the slot holding the key or the free slot where the key would be inserted
+     */
+    private int indexOf(long key) {
+        int index = slotOf(key);
+        long current;
+        while ((current = mKeys[index]) != FREE_KEY && current != key) {
+            index = (index + 1) & mMask;
+        }
+        return index;
+    }
+
+    private int slotOf(long key) {
+        final long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mMask;
+    }
+
+    private void rehash(int capacity) {
+        final long[] oldKeys = mKeys;
+        final int[] oldValues = mValues;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            final long key = oldKeys[i];
+            if (key != FREE_KEY) {
+                final int index = indexOf(key);
+                mKeys[index] = key;
+                mValues[index] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        mKeys = new long[capacity];
+        mValues = new int[capacity];
+        mMask = capacity - 1;
+        mResizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        final int required = (int) Math.ceil(Math.max(expectedSize, 1) / LOAD_FACTOR);
+        int capacity = MIN_CAPACITY;
+        while (capacity < required && capacity < (1 << 30)) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
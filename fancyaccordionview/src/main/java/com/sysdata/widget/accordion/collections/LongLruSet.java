@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2017 Sysdata Spa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sysdata.widget.accordion.collections;
+
+import java.util.Arrays;
+
+/**
+ * Set of primitive {@code long} values ordered from the least to the most recently added, backed
+ * by a single array that only grows when the set does.
+ * <p/>
+ * Membership is checked through a {@link LongHashSet} in constant time, since it is asked for
+ * every item bound or attached, while reordering and removals shift the array, so the set is meant
+ * to hold a limited number of values, e.g. the ids of the expanded items of an accordion.
+ * <p/>
+ * Note: This class is not thread-safe and is meant for internal use by the library.
+ */
+public final class LongLruSet {
+
+    private static final int MIN_CAPACITY = 4;
+
+    private long[] mValues;
+    private int mSize;
+
+    /**
+     * The same values as {@link #mValues}, for the membership checks.
+     */
+    private final LongHashSet mIndex = new LongHashSet();
+
+    public LongLruSet() {
+        mValues = new long[MIN_CAPACITY];
+    }
+
+    /**
+     * @return the number of values in this set
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * @return {@code true} if this set contains no values
+     */
+    public boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    /**
+     * @param value the value to look for
+     * @return {@code true} if this set contains the value
+     */
+    public boolean contains(long value) {
+        return mIndex.contains(value);
+    }
+
+    /**
+     * @param index the recency rank of the value, {@code 0} being the least recently added one
+     * @return the value at the given rank
+     */
+    public long get(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + mSize);
+        }
+        return mValues[index];
+    }
+
+    /**
+     * @return the most recently added value
+     * @throws IndexOutOfBoundsException if this set is empty
+     */
+    public long getNewest() {
+        return get(mSize - 1);
+    }
+
+    /**
+     * Adds the value as the most recent one, moving it if it is already in this set.
+     *
+     * @param value the value to add
+     * @return {@code true} if the value was not in this set
+     */
+    public boolean add(long value) {
+        if (mIndex.add(value)) {
+            if (mSize == mValues.length) {
+                mValues = Arrays.copyOf(mValues, mSize << 1);
+            }
+            mValues[mSize++] = value;
+            return true;
+        }
+
+        final int index = indexOf(value);
+        if (index < mSize - 1) {
+            System.arraycopy(mValues, index + 1, mValues, index, mSize - index - 1);
+            mValues[mSize - 1] = value;
+        }
+        return false;
+    }
+
+    /**
+     * @param value the value to remove
+     * @return {@code true} if the value was in this set
+     */
+    public boolean remove(long value) {
+        if (!mIndex.contains(value)) {
+            return false;
+        }
+        removeAt(indexOf(value));
+        return true;
+    }
+
+    /**
+     * @param index the recency rank of the value to remove
+     * @return the removed value
+     */
+    public long removeAt(int index) {
+        final long value = get(index);
+        System.arraycopy(mValues, index + 1, mValues, index, mSize - index - 1);
+        mSize--;
+        mIndex.remove(value);
+        return value;
+    }
+
+    /**
+     * @return the least recently added value, which is removed from this set
+     * @throws IndexOutOfBoundsException if this set is empty
+     */
+    public long removeEldest() {
+        return removeAt(0);
+    }
+
+    /**
+     * Removes all the values.
+     */
+    public void clear() {
+        mSize = 0;
+        mIndex.clear();
+    }
+
+    /**
+     * @return a new array holding the values from the least to the most recently added
+     */
+    public long[] toArray() {
+        return Arrays.copyOf(mValues, mSize);
+    }
+
+    private int indexOf(long value) {
+        for (int i = 0; i < mSize; i++) {
+            if (mValues[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
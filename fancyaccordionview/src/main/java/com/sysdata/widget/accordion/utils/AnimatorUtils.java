@@ -17,13 +17,15 @@
 package com.sysdata.widget.accordion.utils;
 
 import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
 import android.animation.ObjectAnimator;
-import android.animation.PropertyValuesHolder;
+import android.animation.ValueAnimator;
 import android.graphics.Rect;
 import android.graphics.drawable.Animatable;
 import android.graphics.drawable.Drawable;
 import android.graphics.drawable.LayerDrawable;
 import android.support.v4.graphics.drawable.DrawableCompat;
+import android.support.v4.view.ViewCompat;
 import android.support.v4.view.animation.FastOutSlowInInterpolator;
 import android.util.Property;
 import android.view.View;
@@ -122,6 +124,14 @@ public class AnimatorUtils {
                 }
             };
 
+    /**
+     * Scratch insets reused by {@link #getBoundsAnimator(View, View, View)}, which is only called
+     * on the main thread.
+     */
+    private static final Rect sTargetInsets = new Rect();
+    private static final Rect sFromInsets = new Rect();
+    private static final Rect sToInsets = new Rect();
+
     /**
      * @param target the view to be morphed
      * @param from   the bounds of the {@code target} before animating
@@ -133,11 +143,11 @@ public class AnimatorUtils {
      */
     public static Animator getBoundsAnimator(View target, View from, View to) {
         // Fetch the content insets for the views. Content bounds are what matter, not total bounds.
-        final Rect targetInsets = new Rect();
+        final Rect targetInsets = sTargetInsets;
         target.getBackground().getPadding(targetInsets);
-        final Rect fromInsets = new Rect();
+        final Rect fromInsets = sFromInsets;
         from.getBackground().getPadding(fromInsets);
-        final Rect toInsets = new Rect();
+        final Rect toInsets = sToInsets;
         to.getBackground().getPadding(toInsets);
 
         // Before animating, the content bounds of target must match the content bounds of from.
@@ -157,7 +167,9 @@ public class AnimatorUtils {
     }
 
     /**
-     * Returns an animator that animates the bounds of a single view.
+     * Returns an animator that animates the bounds of a single view. The four edges are driven by
+     * a single {@link ValueAnimator} updating them with primitive arithmetic, so no value is boxed
+     * while the animation runs.
      */
     public static Animator getBoundsAnimator(View view, int fromLeft, int fromTop, int fromRight,
                                              int fromBottom, int toLeft, int toTop, int toRight, int toBottom) {
@@ -166,11 +178,55 @@ public class AnimatorUtils {
         view.setRight(fromRight);
         view.setBottom(fromBottom);
 
-        return ObjectAnimator.ofPropertyValuesHolder(view,
-                PropertyValuesHolder.ofInt(VIEW_LEFT, toLeft),
-                PropertyValuesHolder.ofInt(VIEW_TOP, toTop),
-                PropertyValuesHolder.ofInt(VIEW_RIGHT, toRight),
-                PropertyValuesHolder.ofInt(VIEW_BOTTOM, toBottom));
+        final ValueAnimator animator = ValueAnimator.ofFloat(0f, 1f);
+        animator.addUpdateListener(new BoundsUpdater(view, fromLeft, fromTop, fromRight,
+                fromBottom, toLeft, toTop, toRight, toBottom));
+        return animator;
+    }
+
+    /**
+     * Same as {@link #getBoundsAnimator(View, View, View)} but the {@code target} keeps its
+     * layout bounds: the vertical morph is expressed with translation and clip bounds, so that
+     * the content is revealed or cropped rather than stretched, and the {@code target} alpha goes
+     * from {@code fromAlpha} to {@code toAlpha}. Those are render node properties, so on Lollipop
+     * and later the frames of the animation neither lay out nor redraw the {@code target}. The
+     * clip bounds are not animated before Jelly Bean MR2.
+     * <p/>
+     * The {@code target} transformation and clip bounds are restored when the animation ends.
+     */
+    public static Animator getTransformAnimator(View target, View from, View to,
+                                                float fromAlpha, float toAlpha) {
+        final Rect targetInsets = sTargetInsets;
+        target.getBackground().getPadding(targetInsets);
+        final Rect fromInsets = sFromInsets;
+        from.getBackground().getPadding(fromInsets);
+        final Rect toInsets = sToInsets;
+        to.getBackground().getPadding(toInsets);
+
+        final int startTop = from.getTop() - fromInsets.top + targetInsets.top;
+        final int startBottom = from.getBottom() - fromInsets.bottom + targetInsets.bottom;
+        final int endTop = to.getTop() - toInsets.top + targetInsets.top;
+        final int endBottom = to.getBottom() - toInsets.bottom + targetInsets.bottom;
+
+        return getTransformAnimator(target, startTop, startBottom, endTop, endBottom,
+                fromAlpha, toAlpha);
+    }
+
+    /**
+     * Returns an animator that morphs a single view between two vertical spans like
+     * {@link #getTransformAnimator(View, View, View, float, float)}, e.g. when it changed height in
+     * place.
+     */
+    public static Animator getTransformAnimator(View view, int fromTop, int fromBottom,
+                                                int toTop, int toBottom,
+                                                float fromAlpha, float toAlpha) {
+        final TransformUpdater updater = new TransformUpdater(view, fromTop, fromBottom,
+                toTop, toBottom, fromAlpha, toAlpha);
+        final ValueAnimator animator = ValueAnimator.ofFloat(0f, 1f);
+        animator.addUpdateListener(updater);
+        animator.addListener(updater);
+        updater.apply(0f);
+        return animator;
     }
 
     public static void startDrawableAnimation(ImageView view) {
@@ -179,4 +235,110 @@ public class AnimatorUtils {
             ((Animatable) d).start();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Interpolates the bounds of a view between two sets of edges, rounding like the
+     * {@code IntEvaluator} of an {@link ObjectAnimator} would.
+     */
+    private static final class BoundsUpdater implements ValueAnimator.AnimatorUpdateListener {
+
+        private final View mView;
+        private final int mFromLeft, mFromTop, mFromRight, mFromBottom;
+        private final int mDeltaLeft, mDeltaTop, mDeltaRight, mDeltaBottom;
+
+        BoundsUpdater(View view, int fromLeft, int fromTop, int fromRight, int fromBottom,
+                      int toLeft, int toTop, int toRight, int toBottom) {
+            mView = view;
+            mFromLeft = fromLeft;
+            mFromTop = fromTop;
+            mFromRight = fromRight;
+            mFromBottom = fromBottom;
+            mDeltaLeft = toLeft - fromLeft;
+            mDeltaTop = toTop - fromTop;
+            mDeltaRight = toRight - fromRight;
+            mDeltaBottom = toBottom - fromBottom;
+        }
+
+        @Override
+        public void onAnimationUpdate(ValueAnimator animation) {
+            final float fraction = animation.getAnimatedFraction();
+            mView.setLeft((int) (mFromLeft + fraction * mDeltaLeft));
+            mView.setTop((int) (mFromTop + fraction * mDeltaTop));
+            mView.setRight((int) (mFromRight + fraction * mDeltaRight));
+            mView.setBottom((int) (mFromBottom + fraction * mDeltaBottom));
+        }
+    }
+
+    /**
+     * Interpolates the translation, clip bounds and alpha of a view so that it covers the
+     * vertical span between two sets of edges without being laid out again. A view shorter than
+     * the span is translated only.
+     */
+    private static final class TransformUpdater extends AnimatorListenerAdapter
+            implements ValueAnimator.AnimatorUpdateListener {
+
+        private final View mView;
+        private final int mFromTop, mFromBottom;
+        private final int mDeltaTop, mDeltaBottom;
+        private final float mFromAlpha, mDeltaAlpha;
+
+        private final float mPrevTranslationY, mPrevAlpha;
+        private final Rect mPrevClipBounds;
+        private final int mPrevLayerType;
+
+        /**
+         * Clip bounds updated on every frame, copied by the view.
+         */
+        private final Rect mClipBounds = new Rect();
+
+        TransformUpdater(View view, int fromTop, int fromBottom, int toTop, int toBottom,
+                         float fromAlpha, float toAlpha) {
+            mView = view;
+            mFromTop = fromTop;
+            mFromBottom = fromBottom;
+            mDeltaTop = toTop - fromTop;
+            mDeltaBottom = toBottom - fromBottom;
+            mFromAlpha = fromAlpha;
+            mDeltaAlpha = toAlpha - fromAlpha;
+
+            mPrevTranslationY = view.getTranslationY();
+            mPrevAlpha = view.getAlpha();
+            mPrevClipBounds = ViewCompat.getClipBounds(view);
+            mPrevLayerType = view.getLayerType();
+        }
+
+        void apply(float fraction) {
+            final View view = mView;
+            final float top = mFromTop + fraction * mDeltaTop;
+            final float bottom = mFromBottom + fraction * mDeltaBottom;
+            view.setTranslationY(top - view.getTop());
+            mClipBounds.set(0, 0, view.getWidth(),
+                    Math.max(0, Math.min(view.getHeight(), Math.round(bottom - top))));
+            ViewCompat.setClipBounds(view, mClipBounds);
+            view.setAlpha(mFromAlpha + fraction * mDeltaAlpha);
+        }
+
+        @Override
+        public void onAnimationUpdate(ValueAnimator animation) {
+            apply(animation.getAnimatedFraction());
+        }
+
+        @Override
+        public void onAnimationStart(Animator animation) {
+            if (mView.isHardwareAccelerated()) {
+                mView.setLayerType(View.LAYER_TYPE_HARDWARE, null);
+            }
+        }
+
+        @Override
+        public void onAnimationEnd(Animator animation) {
+            final View view = mView;
+            view.setTranslationY(mPrevTranslationY);
+            ViewCompat.setClipBounds(view, mPrevClipBounds);
+            view.setAlpha(mPrevAlpha);
+            if (view.getLayerType() != mPrevLayerType) {
+                view.setLayerType(mPrevLayerType, null);
+            }
+        }
+    }
+}
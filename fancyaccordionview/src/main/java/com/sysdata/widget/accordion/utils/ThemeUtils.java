@@ -17,16 +17,24 @@
 package com.sysdata.widget.accordion.utils;
 
 import android.content.Context;
-import android.content.res.TypedArray;
+import android.graphics.drawable.ColorDrawable;
 import android.graphics.drawable.Drawable;
 import android.support.annotation.AttrRes;
+import android.support.v4.content.ContextCompat;
+import android.util.TypedValue;
 
 public final class ThemeUtils {
 
     /**
-     * Temporary array used internally to resolve attributes.
+     * Temporary value used internally to resolve attributes, one per thread so that attributes can
+     * be resolved concurrently (e.g. by views inflated off the main thread) without locking.
      */
-    private static final int[] TEMP_ATTR = new int[1];
+    private static final ThreadLocal<TypedValue> TEMP_VALUE = new ThreadLocal<TypedValue>() {
+        @Override
+        protected TypedValue initialValue() {
+            return new TypedValue();
+        }
+    };
 
     private ThemeUtils() {
         // Prevent instantiation.
@@ -37,20 +45,20 @@ public final class ThemeUtils {
      *
      * @param context the {@link Context} to resolve the theme attribute against
      * @param attr    the attribute corresponding to the drawable to resolve
-     * @return the drawable of the resolved attribute
+     * @return the drawable of the resolved attribute, or {@code null} if the attribute is not set
      */
     public static Drawable resolveDrawable(Context context, @AttrRes int attr) {
-        final TypedArray a;
-        synchronized (TEMP_ATTR) {
-            TEMP_ATTR[0] = attr;
-            a = context.obtainStyledAttributes(TEMP_ATTR);
+        final TypedValue value = TEMP_VALUE.get();
+        if (!context.getTheme().resolveAttribute(attr, value, true)) {
+            return null;
         }
-
-        try {
-            return a.getDrawable(0);
-        } finally {
-            a.recycle();
+        if (value.resourceId != 0) {
+            return ContextCompat.getDrawable(context, value.resourceId);
         }
+        if (value.type >= TypedValue.TYPE_FIRST_COLOR_INT
+                && value.type <= TypedValue.TYPE_LAST_COLOR_INT) {
+            return new ColorDrawable(value.data);
+        }
+        return null;
     }
 }
-
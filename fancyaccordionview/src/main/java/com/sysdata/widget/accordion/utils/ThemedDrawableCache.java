@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2017 Sysdata Spa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sysdata.widget.accordion.utils;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.drawable.Drawable;
+import android.os.Looper;
+import android.support.annotation.AttrRes;
+import android.support.annotation.DrawableRes;
+import android.support.v4.content.ContextCompat;
+import android.util.SparseArray;
+
+import java.util.WeakHashMap;
+
+/**
+ * Cache of the drawables used by the item views, kept per {@link Resources.Theme}.
+ * <p/>
+ * The first request of a drawable for a theme loads it as usual and keeps its
+ * {@link Drawable.ConstantState}, the following ones get a new drawable out of it without going
+ * through the resources or resolving the theme again, which keeps view holder creation cheap.
+ * As with the drawables returned by {@link Resources}, the returned drawables share their state:
+ * call {@link Drawable#mutate()} before changing it.
+ * <p/>
+ * Note: The cache is confined to the main thread, requests made on other threads (e.g. by views
+ * inflated asynchronously) are served without caching.
+ */
+public final class ThemedDrawableCache {
+
+    /**
+     * Cached constant states, keyed by theme and then by drawable or attribute resource id.
+     */
+    private static final WeakHashMap<Resources.Theme, SparseArray<Drawable.ConstantState>> sStates =
+            new WeakHashMap<>();
+
+    private ThemedDrawableCache() {
+        // Prevent instantiation.
+    }
+
+    /**
+     * @param context the {@link Context} whose theme and resources are used to load the drawable
+     * @param resId   the resource id of the drawable
+     * @return a new drawable sharing the state of the cached one
+     * @see ContextCompat#getDrawable(Context, int)
+     */
+    public static Drawable getDrawable(Context context, @DrawableRes int resId) {
+        final Drawable drawable = newDrawable(context, resId);
+        return drawable != null ? drawable : cache(context, resId, ContextCompat.getDrawable(context, resId));
+    }
+
+    /**
+     * @param context the {@link Context} to resolve the theme attribute against
+     * @param attr    the attribute corresponding to the drawable to resolve
+     * @return a new drawable sharing the state of the cached one, or {@code null} if the attribute
+     * is not set
+     * @see ThemeUtils#resolveDrawable(Context, int)
+     */
+    public static Drawable resolveDrawable(Context context, @AttrRes int attr) {
+        final Drawable drawable = newDrawable(context, attr);
+        return drawable != null ? drawable : cache(context, attr, ThemeUtils.resolveDrawable(context, attr));
+    }
+
+    /**
+     * Drops all the cached drawables, e.g. after a theme has been modified in place.
+     */
+    public static void clear() {
+        if (isMainThread()) {
+            sStates.clear();
+        }
+    }
+
+    private static Drawable newDrawable(Context context, int key) {
+        if (!isMainThread()) {
+            return null;
+        }
+
+        final Resources.Theme theme = context.getTheme();
+        final SparseArray<Drawable.ConstantState> states = sStates.get(theme);
+        final Drawable.ConstantState state = states != null ? states.get(key) : null;
+        if (state == null) {
+            return null;
+        }
+
+        final Resources resources = context.getResources();
+        return SystemUtils.isLOrLater() ? state.newDrawable(resources, theme) : state.newDrawable(resources);
+    }
+
+    private static Drawable cache(Context context, int key, Drawable drawable) {
+        final Drawable.ConstantState state = drawable != null ? drawable.getConstantState() : null;
+        if (state == null || !isMainThread()) {
+            return drawable;
+        }
+
+        final Resources.Theme theme = context.getTheme();
+        SparseArray<Drawable.ConstantState> states = sStates.get(theme);
+        if (states == null) {
+            states = new SparseArray<>();
+            sStates.put(theme, states);
+        }
+        states.put(key, state);
+        return drawable;
+    }
+
+    private static boolean isMainThread() {
+        return Looper.myLooper() == Looper.getMainLooper();
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2017 Sysdata Spa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sysdata.widget.accordion;
+
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Host-side test of {@link AccordionItemAdapter}, the adapter of {@link FancyAccordionView}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 23)
+public class AccordionItemAdapterTest {
+
+    private static final int ITEM_COUNT = 5;
+    private static final int COLLAPSED_LAYOUT_ID = 1;
+    private static final int EXPANDED_LAYOUT_ID = 2;
+    private static final int LIST_WIDTH = 480;
+    private static final int COLLAPSED_HEIGHT = 100;
+    private static final int EXPANDED_HEIGHT = 300;
+
+    private AccordionItemAdapter mAdapter;
+    private List<ExpandableItemHolder> mItemHolders;
+    private int mChangeCount;
+
+    @Before
+    public void setUp() throws Exception {
+        mAdapter = new AccordionItemAdapter();
+        mAdapter.setHasStableIds(true);
+        mAdapter.setCollapsedViewHolderFactory(new TestFactory(COLLAPSED_LAYOUT_ID), null, 0);
+        mAdapter.setExpandedViewHolderFactory(new TestFactory(EXPANDED_LAYOUT_ID), null, 0);
+        mAdapter.setOnItemChangedListener(new ItemAdapter.OnItemChangedListener() {
+            @Override
+            public void onItemChanged(ItemAdapter.ItemHolder<?> itemHolder) {
+                mChangeCount++;
+            }
+
+            @Override
+            public void onItemChanged(ItemAdapter.ItemHolder<?> itemHolder, Object payload) {
+                mChangeCount++;
+            }
+        });
+        mItemHolders = createItemHolders();
+        mAdapter.setItems(mItemHolders);
+    }
+
+    @Test
+    public void expand_unchangedRowAfterSetItems_expandsTheNewItemHolder() throws Exception {
+        final TestViewHolder viewHolder = new TestViewHolder();
+        mAdapter.onBindViewHolder(viewHolder, 1);
+
+        // same contents, hence the row is not re-bound by the diff
+        final List<ExpandableItemHolder> newItemHolders = createItemHolders();
+        mAdapter.setItems(newItemHolders, ItemAdapter.ITEM_EQUALS_COMPARATOR);
+
+        viewHolder.getItemHolder().expand();
+
+        assertSame(newItemHolders.get(1), viewHolder.getItemHolder());
+        assertTrue(newItemHolders.get(1).isExpanded());
+        assertFalse(mItemHolders.get(1).isExpanded());
+        assertEquals(1, mChangeCount);
+    }
+
+    @Test
+    public void applyItemsUpdate_keepsTheExpansionsMadeWhileCalculating() throws Exception {
+        final List<ExpandableItemHolder> newItemHolders = createItemHolders();
+        final ItemAdapter.ItemsUpdate<ExpandableItemHolder> update = mAdapter.newItemsUpdate(
+                newItemHolders, ItemAdapter.ITEM_EQUALS_COMPARATOR).calculate();
+
+        mItemHolders.get(2).expand();
+        mAdapter.applyItemsUpdate(update);
+
+        assertSame(newItemHolders, mAdapter.getItems());
+        assertTrue(newItemHolders.get(2).isExpanded());
+        assertFalse(newItemHolders.get(3).isExpanded());
+    }
+
+    @Test
+    public void expandAndCollapse_keepsTheMeasuredHeightsOfBothStates() throws Exception {
+        final ExpandableItemHolder itemHolder = mItemHolders.get(1);
+        mAdapter.onItemViewMeasured(bindViewHolder(1, COLLAPSED_LAYOUT_ID), LIST_WIDTH,
+                COLLAPSED_HEIGHT);
+        itemHolder.expand();
+        mAdapter.onItemViewMeasured(bindViewHolder(1, EXPANDED_LAYOUT_ID), LIST_WIDTH,
+                EXPANDED_HEIGHT);
+
+        itemHolder.collapse();
+        assertEquals(COLLAPSED_HEIGHT, mAdapter.getCachedItemHeight(itemHolder.itemId,
+                COLLAPSED_LAYOUT_ID, false, LIST_WIDTH));
+        itemHolder.expand();
+        assertEquals(EXPANDED_HEIGHT, mAdapter.getCachedItemHeight(itemHolder.itemId,
+                EXPANDED_LAYOUT_ID, true, LIST_WIDTH));
+        assertEquals(-1, mAdapter.getCachedItemHeight(itemHolder.itemId,
+                EXPANDED_LAYOUT_ID, false, LIST_WIDTH));
+    }
+
+    private ItemAdapter.ItemViewHolder bindViewHolder(int position, int viewType) {
+        assertEquals(viewType, mAdapter.getItemViewType(position));
+        final ItemAdapter.ItemViewHolder viewHolder = mAdapter.createViewHolder(null, viewType);
+        mAdapter.onBindViewHolder(viewHolder, position);
+        return viewHolder;
+    }
+
+    private static List<ExpandableItemHolder> createItemHolders() {
+        final List<ExpandableItemHolder> itemHolders = new ArrayList<>(ITEM_COUNT);
+        for (int i = 0; i < ITEM_COUNT; i++) {
+            itemHolders.add(new ExpandableItemHolder<>(new TestItem(i)));
+        }
+        return itemHolders;
+    }
+
+    private static final class TestItem extends Item {
+
+        private final int mId;
+
+        TestItem(int id) {
+            mId = id;
+        }
+
+        @Override
+        public int getUniqueId() {
+            return mId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof TestItem && ((TestItem) o).mId == mId;
+        }
+
+        @Override
+        public int hashCode() {
+            return mId;
+        }
+    }
+
+    private static final class TestFactory implements ItemAdapter.ItemViewHolder.Factory {
+
+        private final int mLayoutId;
+
+        TestFactory(int layoutId) {
+            mLayoutId = layoutId;
+        }
+
+        @Override
+        public ItemAdapter.ItemViewHolder<?> createViewHolder(ViewGroup parent, int viewType) {
+            return new TestViewHolder();
+        }
+
+        @Override
+        public int getItemViewLayoutId() {
+            return mLayoutId;
+        }
+    }
+
+    private static final class TestViewHolder
+            extends ItemAdapter.ItemViewHolder<ExpandableItemHolder> {
+
+        TestViewHolder() {
+            super(new View(RuntimeEnvironment.application));
+        }
+
+        @Override
+        protected void onBindItemView(ExpandableItemHolder itemHolder) {
+        }
+
+        @Override
+        protected void onRecycleItemView() {
+        }
+
+        @Override
+        protected ItemAdapter.ItemViewHolder.Factory getViewHolderFactory() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2017 Sysdata Spa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sysdata.widget.accordion;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * Host-side test of {@link FancyAccordionView}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 23)
+public class FancyAccordionViewTest {
+
+    private static final int ITEM_COUNT = 10;
+    private static final int MAX_EXPANDED_ITEMS = 3;
+
+    @Test
+    public void savedState_restoresTheExpandedItemIdsInRecencyOrder() throws Exception {
+        // from the least to the most recently expanded
+        final long[] expandedItemIds = {7L, 2L, 5L};
+        final FancyAccordionView view = createView();
+        view.setExpandedItemIds(expandedItemIds);
+
+        // like after process death, the state is read with the class loader of the app
+        final Parcel parcel = Parcel.obtain();
+        final Parcelable state;
+        try {
+            parcel.writeParcelable(view.onSaveInstanceState(), 0);
+            parcel.setDataPosition(0);
+            state = parcel.readParcelable(FancyAccordionView.class.getClassLoader());
+        } finally {
+            parcel.recycle();
+        }
+
+        final FancyAccordionView restoredView = createView();
+        restoredView.setAdapterItems(createItemHolders());
+        restoredView.onRestoreInstanceState(state);
+
+        assertArrayEquals(expandedItemIds, restoredView.getExpandedItemIds());
+    }
+
+    private static FancyAccordionView createView() {
+        final FancyAccordionView view = new FancyAccordionView(RuntimeEnvironment.application);
+        view.setMaxExpandedItems(MAX_EXPANDED_ITEMS);
+        return view;
+    }
+
+    private static List<ExpandableItemHolder> createItemHolders() {
+        final List<ExpandableItemHolder> itemHolders = new ArrayList<>(ITEM_COUNT);
+        for (int i = 0; i < ITEM_COUNT; i++) {
+            itemHolders.add(new ExpandableItemHolder<>(new TestItem(i)));
+        }
+        return itemHolders;
+    }
+
+    private static final class TestItem extends Item {
+
+        private final int mId;
+
+        TestItem(int id) {
+            mId = id;
+        }
+
+        @Override
+        public int getUniqueId() {
+            return mId;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2017 Sysdata Spa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sysdata.widget.accordion;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Host-side test of {@link ItemPositionIndex}, the id to position index of {@link ItemAdapter}.
+ */
+public class ItemPositionIndexTest {
+
+    private static final int ITEM_COUNT = 100000;
+
+    private CountingList mItemHolders;
+    private ItemPositionIndex mIndex;
+
+    @Before
+    public void setUp() throws Exception {
+        mItemHolders = new CountingList(ITEM_COUNT);
+        for (int i = 0; i < ITEM_COUNT; i++) {
+            mItemHolders.add(new TestItemHolder(i));
+        }
+        mIndex = new ItemPositionIndex();
+        mIndex.reset(mItemHolders);
+    }
+
+    @Test
+    public void indexOf_findsEveryItemInConstantTime() throws Exception {
+        // first lookup builds the index with a single pass over the list
+        assertEquals(0, mIndex.indexOf(mItemHolders.get(0)));
+        mItemHolders.resetCounters();
+
+        for (int i = ITEM_COUNT - 1; i >= 0; i--) {
+            assertEquals(i, mIndex.indexOf(mItemHolders.get(i)));
+        }
+
+        assertEquals(0, mItemHolders.mIndexOfCalls);
+        // one get() per lookup in the loop above plus one to verify the indexed position
+        assertEquals(2 * ITEM_COUNT, mItemHolders.mGetCalls);
+    }
+
+    @Test
+    public void indexOfId_findsEveryItemInConstantTime() throws Exception {
+        assertEquals(0, mIndex.indexOfId(0));
+        mItemHolders.resetCounters();
+
+        for (int i = 0; i < ITEM_COUNT; i++) {
+            assertEquals(i, mIndex.indexOfId(i));
+        }
+
+        assertEquals(0, mItemHolders.mIndexOfCalls);
+        assertEquals(ITEM_COUNT, mItemHolders.mGetCalls);
+        assertEquals(-1, mIndex.indexOfId(ITEM_COUNT));
+    }
+
+    @Test
+    public void index_isUpdatedAfterInsertionsAndRemovals() throws Exception {
+        final TestItemHolder inserted = new TestItemHolder(ITEM_COUNT);
+        mItemHolders.add(ITEM_COUNT / 2, inserted);
+        mIndex.onItemInserted(ITEM_COUNT / 2);
+
+        final ItemAdapter.ItemHolder removed = mItemHolders.remove(10);
+        mIndex.onItemRemoved(10, removed.itemId);
+
+        assertEquals(-1, mIndex.indexOf(removed));
+        assertEquals(-1, mIndex.indexOfId(removed.itemId));
+        assertEquals(ITEM_COUNT / 2 - 1, mIndex.indexOf(inserted));
+        for (int i = 0; i < mItemHolders.size(); i++) {
+            assertEquals(i, mIndex.indexOf(mItemHolders.get(i)));
+            assertEquals(i, mIndex.indexOfId(mItemHolders.get(i).itemId));
+        }
+        assertEquals(0, mItemHolders.mIndexOfCalls);
+    }
+
+    @Test
+    public void indexOf_handlesHoldersSharingTheSameId() throws Exception {
+        final TestItemHolder duplicate = new TestItemHolder(5);
+        mItemHolders.add(duplicate);
+        mIndex.onItemInserted(ITEM_COUNT);
+
+        assertEquals(5, mIndex.indexOf(mItemHolders.get(5)));
+        assertEquals(ITEM_COUNT, mIndex.indexOf(duplicate));
+        assertTrue(mIndex.indexOfId(5) == 5 || mIndex.indexOfId(5) == ITEM_COUNT);
+        assertEquals(-1, mIndex.indexOf(new TestItemHolder(ITEM_COUNT + 1)));
+    }
+
+    private static final class TestItem extends Item {
+
+        private final int mId;
+
+        TestItem(int id) {
+            mId = id;
+        }
+
+        @Override
+        public int getUniqueId() {
+            return mId;
+        }
+    }
+
+    private static final class TestItemHolder extends ItemAdapter.ItemHolder<TestItem> {
+
+        TestItemHolder(int id) {
+            super(new TestItem(id), id);
+        }
+
+        @Override
+        public int getItemViewType() {
+            return 0;
+        }
+    }
+
+    /**
+     * List counting the accesses made by the index.
+     */
+    private static final class CountingList extends ArrayList<ItemAdapter.ItemHolder> {
+
+        int mGetCalls;
+        int mIndexOfCalls;
+
+        CountingList(int capacity) {
+            super(capacity);
+        }
+
+        void resetCounters() {
+            mGetCalls = 0;
+            mIndexOfCalls = 0;
+        }
+
+        @Override
+        public ItemAdapter.ItemHolder get(int index) {
+            mGetCalls++;
+            return super.get(index);
+        }
+
+        @Override
+        public int indexOf(Object o) {
+            mIndexOfCalls++;
+            return super.indexOf(o);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2017 Sysdata Spa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sysdata.widget.accordion.collections;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Random;
+
+/**
+ * Access pattern of the adapter on the ids of a large dataset, shared by
+ * {@link PrimitiveCollectionsTest} and {@link PrimitiveCollectionsBenchmark}: the ids are
+ * indexed, looked up and half of them removed. Each run returns a checksum of the results, equal
+ * for a primitive collection and its boxed {@code java.util} counterpart.
+ */
+final class IdWorkload {
+
+    /**
+     * Ids of the items, spread over the whole {@code long} range like hashes or database keys.
+     */
+    final long[] mIds;
+
+    /**
+     * Ids looked up, half of them not in the collections.
+     */
+    final long[] mLookups;
+
+    IdWorkload(int idCount, long seed) {
+        final Random random = new Random(seed);
+        mIds = new long[idCount];
+        mLookups = new long[idCount];
+        for (int i = 0; i < idCount; i++) {
+            mIds[i] = random.nextLong();
+            mLookups[i] = (i & 1) == 0 ? mIds[random.nextInt(i + 1)] : random.nextLong();
+        }
+    }
+
+    long runLongIntHashMap() {
+        final LongIntHashMap map = new LongIntHashMap();
+        for (int i = 0; i < mIds.length; i++) {
+            map.put(mIds[i], i);
+        }
+        long result = 0;
+        for (int i = 0; i < mLookups.length; i++) {
+            result += map.get(mLookups[i], -1);
+        }
+        for (int i = 0; i < mIds.length; i += 2) {
+            result += map.remove(mIds[i], -1);
+        }
+        return result + map.size();
+    }
+
+    long runBoxedHashMap() {
+        final HashMap<Long, Integer> map = new HashMap<>();
+        for (int i = 0; i < mIds.length; i++) {
+            map.put(mIds[i], i);
+        }
+        long result = 0;
+        for (int i = 0; i < mLookups.length; i++) {
+            final Integer value = map.get(mLookups[i]);
+            result += value != null ? value : -1;
+        }
+        for (int i = 0; i < mIds.length; i += 2) {
+            final Integer value = map.remove(mIds[i]);
+            result += value != null ? value : -1;
+        }
+        return result + map.size();
+    }
+
+    long runLongHashSet() {
+        final LongHashSet set = new LongHashSet();
+        for (int i = 0; i < mIds.length; i++) {
+            set.add(mIds[i]);
+        }
+        long result = 0;
+        for (int i = 0; i < mLookups.length; i++) {
+            if (set.contains(mLookups[i])) {
+                result++;
+            }
+        }
+        for (int i = 0; i < mIds.length; i += 2) {
+            set.remove(mIds[i]);
+        }
+        return result + set.size();
+    }
+
+    long runBoxedHashSet() {
+        final HashSet<Long> set = new HashSet<>();
+        for (int i = 0; i < mIds.length; i++) {
+            set.add(mIds[i]);
+        }
+        long result = 0;
+        for (int i = 0; i < mLookups.length; i++) {
+            if (set.contains(mLookups[i])) {
+                result++;
+            }
+        }
+        for (int i = 0; i < mIds.length; i += 2) {
+            set.remove(mIds[i]);
+        }
+        return result + set.size();
+    }
+}
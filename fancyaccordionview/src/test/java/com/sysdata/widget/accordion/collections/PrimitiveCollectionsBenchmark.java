@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2017 Sysdata Spa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sysdata.widget.accordion.collections;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Host-side microbenchmarks of the primitive collections against their boxed
+ * {@code java.util} counterparts, on the access pattern of the adapter, see {@link IdWorkload}.
+ * <p/>
+ * Skipped by the default unit test run, run with {@code ./gradlew testDebugUnitTest -Pbenchmark}.
+ * The timings depend on the host, hence they are written to
+ * {@code build/reports/benchmarks/PrimitiveCollectionsBenchmark.txt} rather than asserted; the
+ * results of both implementations are asserted to be equal.
+ */
+public class PrimitiveCollectionsBenchmark {
+
+    /**
+     * System property holding the directory of the report, set by the build when the
+     * {@code benchmark} project property is present.
+     */
+    private static final String REPORT_DIR_PROPERTY = "benchmark.reportDir";
+
+    private static final int ID_COUNT = 100000;
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 10;
+
+    private static final StringBuilder sReport = new StringBuilder();
+
+    private IdWorkload mWorkload;
+
+    @Before
+    public void setUp() throws Exception {
+        assumeTrue(System.getProperty(REPORT_DIR_PROPERTY) != null);
+        mWorkload = new IdWorkload(ID_COUNT, 42);
+    }
+
+    @AfterClass
+    public static void writeReport() throws IOException {
+        final String reportDir = System.getProperty(REPORT_DIR_PROPERTY);
+        if (reportDir == null || sReport.length() == 0) {
+            return;
+        }
+        final File dir = new File(reportDir);
+        assertTrue("Cannot create " + dir, dir.isDirectory() || dir.mkdirs());
+        final Writer writer = new FileWriter(
+                new File(dir, PrimitiveCollectionsBenchmark.class.getSimpleName() + ".txt"));
+        try {
+            writer.write(sReport.toString());
+        } finally {
+            writer.close();
+        }
+    }
+
+    @Test
+    public void longIntHashMap_vsBoxedHashMap() {
+        measure("LongIntHashMap", "HashMap<Long, Integer>", new Round() {
+            @Override
+            long runPrimitive() {
+                return mWorkload.runLongIntHashMap();
+            }
+
+            @Override
+            long runBoxed() {
+                return mWorkload.runBoxedHashMap();
+            }
+        });
+    }
+
+    @Test
+    public void longHashSet_vsBoxedHashSet() {
+        measure("LongHashSet", "HashSet<Long>", new Round() {
+            @Override
+            long runPrimitive() {
+                return mWorkload.runLongHashSet();
+            }
+
+            @Override
+            long runBoxed() {
+                return mWorkload.runBoxedHashSet();
+            }
+        });
+    }
+
+    private static void measure(String primitiveName, String boxedName, Round round) {
+        long primitiveResult = 0;
+        long boxedResult = 0;
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            primitiveResult = round.runPrimitive();
+            boxedResult = round.runBoxed();
+        }
+        assertEquals(boxedResult, primitiveResult);
+
+        final long primitiveStart = System.nanoTime();
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            assertEquals(primitiveResult, round.runPrimitive());
+        }
+        final long boxedStart = System.nanoTime();
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            assertEquals(boxedResult, round.runBoxed());
+        }
+        final long end = System.nanoTime();
+
+        final long primitiveNanos = boxedStart - primitiveStart;
+        final long boxedNanos = end - boxedStart;
+        sReport.append(String.format(Locale.US, "%s: %.2f ms/round, %s: %.2f ms/round (%.1fx)%n",
+                primitiveName, primitiveNanos / 1e6 / MEASURED_ROUNDS,
+                boxedName, boxedNanos / 1e6 / MEASURED_ROUNDS,
+                (double) boxedNanos / primitiveNanos));
+    }
+
+    /**
+     * The two implementations of a workload, returning the checksum of their results.
+     */
+    private abstract static class Round {
+
+        abstract long runPrimitive();
+
+        abstract long runBoxed();
+    }
+}
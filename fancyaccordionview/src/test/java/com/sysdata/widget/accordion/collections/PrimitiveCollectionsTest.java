@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2017 Sysdata Spa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sysdata.widget.accordion.collections;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Host-side test of the primitive collections against their boxed {@code java.util}
+ * counterparts, on the access pattern of the adapter, see {@link IdWorkload}.
+ */
+public class PrimitiveCollectionsTest {
+
+    private static final int ID_COUNT = 100000;
+
+    private IdWorkload mWorkload;
+    private long[] mIds;
+
+    @Before
+    public void setUp() throws Exception {
+        mWorkload = new IdWorkload(ID_COUNT, 42);
+        mIds = mWorkload.mIds;
+    }
+
+    @Test
+    public void longIntHashMap_matchesBoxedHashMap() {
+        assertEquals(mWorkload.runBoxedHashMap(), mWorkload.runLongIntHashMap());
+    }
+
+    @Test
+    public void longHashSet_matchesBoxedHashSet() {
+        assertEquals(mWorkload.runBoxedHashSet(), mWorkload.runLongHashSet());
+    }
+
+    @Test
+    public void longHashSet_handlesZeroAndRemovals() {
+        final LongHashSet set = new LongHashSet();
+        assertTrue(set.add(0L));
+        assertFalse(set.add(0L));
+        for (int i = 0; i < ID_COUNT; i++) {
+            set.add(mIds[i]);
+        }
+        for (int i = 0; i < ID_COUNT; i += 2) {
+            assertTrue(set.remove(mIds[i]));
+        }
+        for (int i = 0; i < ID_COUNT; i++) {
+            assertEquals((i & 1) == 1, set.contains(mIds[i]));
+        }
+        assertTrue(set.contains(0L));
+        assertEquals(ID_COUNT / 2 + 1, set.size());
+        assertEquals(set.size(), set.toArray().length);
+    }
+
+    @Test
+    public void longLruSet_keepsRecencyOrder() {
+        final LongLruSet set = new LongLruSet();
+        for (int i = 0; i < 100; i++) {
+            set.add(mIds[i]);
+        }
+        assertFalse(set.add(mIds[0]));
+        assertEquals(mIds[0], set.getNewest());
+        assertEquals(mIds[1], set.removeEldest());
+        assertFalse(set.contains(mIds[1]));
+        assertTrue(set.remove(mIds[50]));
+        assertFalse(set.contains(mIds[50]));
+        assertEquals(98, set.size());
+    }
+}